@@ -0,0 +1,322 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import cn.toint.okauth.permission.model.PermissionDo;
+import cn.toint.okauth.permission.model.RoleDo;
+import cn.toint.oktool.util.ExceptionUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 紧凑二进制编解码
+ * <p>
+ * 格式: [标志位][原始长度(仅压缩时)][字符串表][记录数][记录...], 整体 Base64 后加前缀存入 Redis.
+ * 整数使用变长编码, 重复的字符串只存一次, 记录中的空字段用位掩码表示, 超过阈值的内容使用 Deflate 压缩.
+ * ID集合只存相邻差值, 不使用字符串表和压缩.
+ * 以 JSON 数组开头的旧缓存值仍按 JSON 解析, 切换格式无需清空缓存.
+ */
+public class BinaryPermissionCacheCodec implements PermissionCacheCodec {
+
+    /**
+     * 二进制值前缀, 与 JSON 数组 '[' 区分
+     */
+    private static final char PREFIX = '~';
+
+    private static final int FLAG_DEFLATE = 1;
+
+    private static final byte LONG = 0;
+    private static final byte INT = 1;
+    private static final byte TIME = 2;
+    private static final byte STRING = 3;
+
+    private static final byte[] ROLE_FIELDS = {LONG, TIME, TIME, STRING, STRING, STRING};
+    private static final byte[] PERMISSION_FIELDS = {LONG, TIME, TIME, LONG, INT, STRING, STRING, STRING, STRING, STRING, INT, STRING};
+
+    private final JacksonPermissionCacheCodec jsonCodec = new JacksonPermissionCacheCodec();
+
+    /**
+     * 超过该字节数时压缩
+     */
+    private final int compressThreshold;
+
+    public BinaryPermissionCacheCodec(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public String encodeRoles(List<RoleDo> roleDos) {
+        return encode(roleDos, ROLE_FIELDS, roleDo -> new Object[]{
+                roleDo.getId(), roleDo.getCreateTime(), roleDo.getUpdateTime(),
+                roleDo.getCode(), roleDo.getName(), roleDo.getRemark()
+        });
+    }
+
+    @Override
+    public List<RoleDo> decodeRoles(String value) {
+        if (isJson(value)) return jsonCodec.decodeRoles(value);
+        return decode(value, ROLE_FIELDS, fields -> {
+            RoleDo roleDo = new RoleDo();
+            roleDo.setId((Long) fields[0]);
+            roleDo.setCreateTime((LocalDateTime) fields[1]);
+            roleDo.setUpdateTime((LocalDateTime) fields[2]);
+            roleDo.setCode((String) fields[3]);
+            roleDo.setName((String) fields[4]);
+            roleDo.setRemark((String) fields[5]);
+            return roleDo;
+        });
+    }
+
+    @Override
+    public String encodePermissions(List<PermissionDo> permissionDos) {
+        return encode(permissionDos, PERMISSION_FIELDS, permissionDo -> new Object[]{
+                permissionDo.getId(), permissionDo.getCreateTime(), permissionDo.getUpdateTime(),
+                permissionDo.getParentId(), permissionDo.getType(), permissionDo.getName(),
+                permissionDo.getPath(), permissionDo.getComponent(), permissionDo.getComponentName(),
+                permissionDo.getIcon(), permissionDo.getSort(), permissionDo.getCode()
+        });
+    }
+
+    @Override
+    public List<PermissionDo> decodePermissions(String value) {
+        if (isJson(value)) return jsonCodec.decodePermissions(value);
+        return decode(value, PERMISSION_FIELDS, fields -> {
+            PermissionDo permissionDo = new PermissionDo();
+            permissionDo.setId((Long) fields[0]);
+            permissionDo.setCreateTime((LocalDateTime) fields[1]);
+            permissionDo.setUpdateTime((LocalDateTime) fields[2]);
+            permissionDo.setParentId((Long) fields[3]);
+            permissionDo.setType((Integer) fields[4]);
+            permissionDo.setName((String) fields[5]);
+            permissionDo.setPath((String) fields[6]);
+            permissionDo.setComponent((String) fields[7]);
+            permissionDo.setComponentName((String) fields[8]);
+            permissionDo.setIcon((String) fields[9]);
+            permissionDo.setSort((Integer) fields[10]);
+            permissionDo.setCode((String) fields[11]);
+            return permissionDo;
+        });
+    }
+
+    @Override
+    public String encodeIds(long[] ids) {
+        // 有序ID只存相邻差值, 差值通常很小
+        Writer out = new Writer();
+        out.writeVarLong(ids.length);
+        long previous = 0;
+        for (long id : ids) {
+            out.writeVarLong(zigzag(id - previous));
+            previous = id;
+        }
+        return PREFIX + Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    @Override
+    public long[] decodeIds(String value) {
+        if (isJson(value)) return jsonCodec.decodeIds(value);
+        ByteBuffer in = ByteBuffer.wrap(Base64.getDecoder().decode(value.substring(1)));
+        long[] ids = new long[(int) readVarLong(in)];
+        long previous = 0;
+        for (int i = 0; i < ids.length; i++) {
+            previous += unzigzag(readVarLong(in));
+            ids[i] = previous;
+        }
+        return ids;
+    }
+
+    private boolean isJson(String value) {
+        return !value.isEmpty() && value.charAt(0) != PREFIX;
+    }
+
+    private <T> String encode(List<T> records, byte[] kinds, Function<T, Object[]> toFields) {
+        Writer body = new Writer();
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> stringTable = new ArrayList<>();
+
+        body.writeVarLong(records.size());
+        for (T record : records) {
+            Object[] fields = toFields.apply(record);
+
+            // 空字段位掩码
+            long nullMask = 0;
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i] == null) nullMask |= 1L << i;
+            }
+            body.writeVarLong(nullMask);
+
+            for (int i = 0; i < fields.length; i++) {
+                Object field = fields[i];
+                if (field == null) continue;
+                switch (kinds[i]) {
+                    case LONG -> body.writeVarLong(zigzag((Long) field));
+                    case INT -> body.writeVarLong(zigzag((Integer) field));
+                    case TIME -> {
+                        LocalDateTime time = (LocalDateTime) field;
+                        body.writeVarLong(zigzag(time.toEpochSecond(ZoneOffset.UTC)));
+                        body.writeVarLong(time.getNano());
+                    }
+                    default -> body.writeVarLong(strings.computeIfAbsent((String) field, key -> {
+                        stringTable.add(key);
+                        return stringTable.size() - 1;
+                    }));
+                }
+            }
+        }
+
+        Writer payload = new Writer();
+        payload.writeVarLong(stringTable.size());
+        for (String string : stringTable) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            payload.writeVarLong(bytes.length);
+            payload.writeBytes(bytes);
+        }
+        payload.writeBytes(body.toByteArray());
+        byte[] raw = payload.toByteArray();
+
+        Writer out = new Writer();
+        if (raw.length > compressThreshold) {
+            out.write(FLAG_DEFLATE);
+            out.writeVarLong(raw.length);
+            out.writeBytes(deflate(raw));
+        } else {
+            out.write(0);
+            out.writeBytes(raw);
+        }
+        return PREFIX + Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    private <T> List<T> decode(String value, byte[] kinds, Function<Object[], T> fromFields) {
+        ByteBuffer in = ByteBuffer.wrap(Base64.getDecoder().decode(value.substring(1)));
+        int flags = in.get();
+        if ((flags & FLAG_DEFLATE) != 0) {
+            int rawLength = (int) readVarLong(in);
+            byte[] compressed = new byte[in.remaining()];
+            in.get(compressed);
+            in = ByteBuffer.wrap(inflate(compressed, rawLength));
+        }
+
+        String[] stringTable = new String[(int) readVarLong(in)];
+        for (int i = 0; i < stringTable.length; i++) {
+            byte[] bytes = new byte[(int) readVarLong(in)];
+            in.get(bytes);
+            stringTable[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int size = (int) readVarLong(in);
+        List<T> records = new ArrayList<>(size);
+        for (int r = 0; r < size; r++) {
+            long nullMask = readVarLong(in);
+            Object[] fields = new Object[kinds.length];
+            for (int i = 0; i < kinds.length; i++) {
+                if ((nullMask & (1L << i)) != 0) continue;
+                fields[i] = switch (kinds[i]) {
+                    case LONG -> unzigzag(readVarLong(in));
+                    case INT -> (int) unzigzag(readVarLong(in));
+                    case TIME -> LocalDateTime.ofEpochSecond(unzigzag(readVarLong(in)), (int) readVarLong(in), ZoneOffset.UTC);
+                    default -> stringTable[(int) readVarLong(in)];
+                };
+            }
+            records.add(fromFields.apply(fields));
+        }
+        return records;
+    }
+
+    private byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            Writer out = new Writer();
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] inflate(byte[] compressed, int rawLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int offset = 0;
+            while (offset < rawLength && !inflater.finished()) {
+                int length = inflater.inflate(raw, offset, rawLength - offset);
+                // 输入已耗尽仍未解压完整, 数据被截断或损坏, 继续循环不会再有进展
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw ExceptionUtil.wrapRuntimeException("权限缓存解压失败: 数据不完整");
+                }
+                offset += length;
+            }
+            if (offset != rawLength) {
+                throw ExceptionUtil.wrapRuntimeException("权限缓存解压失败: 长度不一致, 期望{}, 实际{}", rawLength, offset);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw ExceptionUtil.wrapRuntimeException("权限缓存解压失败: {}", e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static final class Writer extends ByteArrayOutputStream {
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import cn.toint.okauth.permission.event.DeptChangeEvent;
+import cn.toint.okauth.permission.mapper.DeptClosureMapper;
+import cn.toint.okauth.permission.mapper.DeptMapper;
+import cn.toint.okauth.permission.mapper.DeptMtmRoleMapper;
+import cn.toint.okauth.permission.model.DeptClosureDo;
+import cn.toint.okauth.permission.model.DeptDo;
+import cn.toint.okauth.permission.model.DeptMtmRoleDo;
+import cn.toint.okauth.permission.properties.OkAuthPermissionProperties;
+import cn.toint.okauth.permission.util.LongAdjacency;
+import cn.toint.okauth.permission.util.SortedLongArrays;
+import cn.toint.oktool.util.KeyBuilderUtil;
+import com.mybatisflex.core.query.QueryWrapper;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 部门目录
+ * <p>
+ * 全部部门与闭包表在本地内存各保存一份, 闭包表加载为 祖先 -> 子孙 与 子孙 -> 祖先 两个压缩邻接表,
+ * 查询某部门下的全部部门只需一次二分查找, 无需递归. 部门绑定的角色同样按 部门 -> 角色 与 角色 -> 部门 保存.
+ * 目录带版本号, 部门变更提交后自增版本号, 各节点在下次检查时重新加载.
+ */
+@Slf4j
+@Component
+public class DeptCatalog {
+
+    /**
+     * 目录版本号
+     */
+    private static final String VERSION_KEY = KeyBuilderUtil.of("deptCatalog").build("version");
+
+    @Resource
+    private VersionCounter versionCounter;
+
+    @Resource
+    private DeptMapper deptMapper;
+
+    @Resource
+    private DeptClosureMapper deptClosureMapper;
+
+    @Resource
+    private DeptMtmRoleMapper deptMtmRoleMapper;
+
+    @Resource
+    private OkAuthPermissionProperties okAuthPermissionProperties;
+
+    /**
+     * 本地目录, 未加载时为null
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * 上次检查版本号的时间 (纳秒)
+     */
+    private volatile long checkTime = Long.MIN_VALUE;
+
+    /**
+     * 根据ID查询部门
+     *
+     * @return 不存在返回null
+     */
+    public DeptDo get(Long id) {
+        if (id == null) return null;
+        Snapshot current = current();
+        int index = Arrays.binarySearch(current.ids(), id);
+        return index < 0 ? null : current.depts()[index];
+    }
+
+    /**
+     * 全部部门, 按ID升序
+     *
+     * @return 不可修改的部门集合
+     */
+    public List<DeptDo> listAll() {
+        return List.of(current().depts());
+    }
+
+    /**
+     * 查询部门及其全部子孙部门
+     *
+     * @return 升序的部门ID, 部门不存在返回空数组
+     */
+    public long[] getDescendantIds(Long id) {
+        if (id == null) return SortedLongArrays.EMPTY;
+        return current().descendants().get(id);
+    }
+
+    /**
+     * 批量查询部门及其全部子孙部门
+     *
+     * @return 升序且无重复的部门ID
+     */
+    public long[] getDescendantIds(long[] ids) {
+        return current().descendants().union(ids);
+    }
+
+    /**
+     * 查询部门及其全部祖先部门
+     *
+     * @return 升序的部门ID, 部门不存在返回空数组
+     */
+    public long[] getAncestorIds(Long id) {
+        if (id == null) return SortedLongArrays.EMPTY;
+        return current().ancestors().get(id);
+    }
+
+    /**
+     * 查询部门直接绑定的角色
+     *
+     * @return 升序的角色ID
+     */
+    public long[] getRoleIds(Long id) {
+        if (id == null) return SortedLongArrays.EMPTY;
+        return current().deptRoles().get(id);
+    }
+
+    /**
+     * 查询部门继承的全部角色, 即部门及其全部祖先部门绑定的角色
+     *
+     * @param ids 部门ID
+     * @return 升序且无重复的角色ID
+     */
+    public long[] getInheritedRoleIds(long[] ids) {
+        Snapshot current = current();
+        if (current.deptRoles().size() == 0) return SortedLongArrays.EMPTY;
+        return current.deptRoles().union(current.ancestors().union(ids));
+    }
+
+    /**
+     * 查询继承了角色的全部部门, 即绑定了角色的部门及其全部子孙部门
+     *
+     * @return 升序且无重复的部门ID
+     */
+    public long[] getInheritingDeptIds(Collection<Long> roleIds) {
+        Snapshot current = current();
+        if (current.deptRoles().size() == 0) return SortedLongArrays.EMPTY;
+        long[] deptIds = current.roleDepts().union(roleIds.stream().mapToLong(Long::longValue).toArray());
+        return getDescendantIds(deptIds);
+    }
+
+    /**
+     * 是否存在部门绑定的角色
+     */
+    public boolean hasRoleBindings() {
+        return current().deptRoles().size() > 0;
+    }
+
+    /**
+     * 当前目录版本号
+     */
+    public long version() {
+        return current().version();
+    }
+
+    /**
+     * 部门变更事务提交后自增版本号, 本节点立即重新加载, 其他节点在下次检查时重新加载
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDeptChange(DeptChangeEvent event) {
+        versionCounter.increment(VERSION_KEY);
+        checkTime = Long.MIN_VALUE;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        long interval = okAuthPermissionProperties.getCatalogRefreshInterval().toNanos();
+        if (current != null && checkTime != Long.MIN_VALUE && System.nanoTime() - checkTime <= interval) {
+            return current;
+        }
+
+        synchronized (this) {
+            current = snapshot;
+            if (current != null && checkTime != Long.MIN_VALUE && System.nanoTime() - checkTime <= interval) {
+                return current;
+            }
+
+            long version;
+            try {
+                version = versionCounter.get(VERSION_KEY);
+            } catch (Exception e) {
+                // 读取失败时继续使用本地目录
+                log.error("部门目录版本号读取失败: {}", e.getMessage(), e);
+                if (current != null) return current;
+                version = 0;
+            }
+
+            if (current == null || current.version() != version) {
+                current = load(version);
+                snapshot = current;
+            }
+            checkTime = System.nanoTime();
+            return current;
+        }
+    }
+
+    private Snapshot load(long version) {
+        // 按ID排序, ID与部门按下标一一对应
+        DeptDo[] depts = deptMapper.selectAll()
+                .stream()
+                .filter(deptDo -> deptDo != null && deptDo.getId() != null)
+                .sorted(Comparator.comparing(DeptDo::getId))
+                .toArray(DeptDo[]::new);
+        long[] ids = new long[depts.length];
+        for (int i = 0; i < depts.length; i++) {
+            ids[i] = depts[i].getId();
+        }
+
+        // 闭包表按 (祖先, 子孙) 升序读取, 直接构建邻接表
+        LongAdjacency.Builder builder = LongAdjacency.builder();
+        deptClosureMapper.selectListByQuery(QueryWrapper.create()
+                        .select(DeptClosureDo::getAncestorId, DeptClosureDo::getDescendantId)
+                        .orderBy(DeptClosureDo::getAncestorId, true)
+                        .orderBy(DeptClosureDo::getDescendantId, true))
+                .forEach(deptClosureDo -> builder.add(deptClosureDo.getAncestorId(), deptClosureDo.getDescendantId()));
+        LongAdjacency descendants = builder.build();
+
+        LongAdjacency.Builder deptRoleBuilder = LongAdjacency.builder();
+        deptMtmRoleMapper.selectListByQuery(QueryWrapper.create()
+                        .select(DeptMtmRoleDo::getDeptId, DeptMtmRoleDo::getRoleId)
+                        .orderBy(DeptMtmRoleDo::getDeptId, true)
+                        .orderBy(DeptMtmRoleDo::getRoleId, true))
+                .forEach(deptMtmRoleDo -> deptRoleBuilder.add(deptMtmRoleDo.getDeptId(), deptMtmRoleDo.getRoleId()));
+        LongAdjacency deptRoles = deptRoleBuilder.build();
+
+        log.info("部门目录加载成功, 版本号: {}, 部门数量: {}, 闭包关系数量: {}, 部门角色数量: {}",
+                version, ids.length, descendants.size(), deptRoles.size());
+        return new Snapshot(version, ids, depts, descendants, descendants.invert(), deptRoles, deptRoles.invert());
+    }
+
+    /**
+     * @param ids         升序的部门ID
+     * @param depts       与ID下标对应的部门
+     * @param descendants 部门 -> 自身及子孙部门
+     * @param ancestors   部门 -> 自身及祖先部门
+     * @param deptRoles   部门 -> 直接绑定的角色
+     * @param roleDepts   角色 -> 直接绑定的部门
+     */
+    private record Snapshot(long version, long[] ids, DeptDo[] depts,
+                            LongAdjacency descendants, LongAdjacency ancestors,
+                            LongAdjacency deptRoles, LongAdjacency roleDepts) {
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import cn.toint.okauth.permission.event.DictChangeEvent;
+import cn.toint.okauth.permission.mapper.DictMapper;
+import cn.toint.okauth.permission.model.DictDo;
+import cn.toint.okauth.permission.model.SerializedResponse;
+import cn.toint.okauth.permission.properties.OkAuthPermissionProperties;
+import cn.toint.oktool.util.KeyBuilderUtil;
+import com.mybatisflex.core.query.QueryWrapper;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 字典目录
+ * <p>
+ * 全部字典在本地内存保存一份, 按 类型 -> 字典 与 (类型, 键) -> 字典 建立索引, 按类型查询只需一次哈希查找, 不访问数据库.
+ * 目录带版本号, 字典变更提交后自增版本号, 各节点在下次检查时重新加载.
+ */
+@Slf4j
+@Component
+public class DictCatalog {
+
+    /**
+     * 目录版本号
+     */
+    private static final String VERSION_KEY = KeyBuilderUtil.of("dictCatalog").build("version");
+
+    @Resource
+    private VersionCounter versionCounter;
+
+    @Resource
+    private DictMapper dictMapper;
+
+    @Resource
+    private OkAuthPermissionProperties okAuthPermissionProperties;
+
+    /**
+     * 本地目录, 未加载时为null
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * 上次检查版本号的时间 (纳秒)
+     */
+    private volatile long checkTime = Long.MIN_VALUE;
+
+    /**
+     * 全部字典序列化后的响应, 与生成它的本地目录绑定, 目录重新加载后失效
+     */
+    private volatile Serialized serialized;
+
+    /**
+     * 全部字典, 按类型, 排序升序
+     *
+     * @return 不可修改的字典集合
+     */
+    public List<DictDo> listAll() {
+        return current().all();
+    }
+
+    /**
+     * 根据类型查询字典, 按排序升序
+     *
+     * @return 不可修改的字典集合, 类型不存在返回空集合
+     */
+    public List<DictDo> listByType(String type) {
+        if (type == null) return List.of();
+        return current().types().getOrDefault(type, List.of());
+    }
+
+    /**
+     * 根据类型和键查询字典
+     *
+     * @return 不存在返回null
+     */
+    public DictDo get(String type, String key) {
+        if (type == null || key == null) return null;
+        Map<String, DictDo> dicts = current().keys().get(type);
+        return dicts == null ? null : dicts.get(key);
+    }
+
+    /**
+     * 查询全部字典序列化后的响应
+     * 同一版本的目录只序列化与压缩一次
+     *
+     * @param serializer 序列化全部字典
+     */
+    public SerializedResponse getSerializedAll(Function<List<DictDo>, SerializedResponse> serializer) {
+        Snapshot current = current();
+        Serialized cached = serialized;
+        if (cached == null || cached.snapshot() != current) {
+            cached = new Serialized(current, serializer.apply(current.all()));
+            serialized = cached;
+        }
+        return cached.response();
+    }
+
+    /**
+     * 当前目录版本号
+     */
+    public long version() {
+        return current().version();
+    }
+
+    /**
+     * 字典变更事务提交后自增版本号, 本节点立即重新加载, 其他节点在下次检查时重新加载
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDictChange(DictChangeEvent event) {
+        versionCounter.increment(VERSION_KEY);
+        checkTime = Long.MIN_VALUE;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        long interval = okAuthPermissionProperties.getCatalogRefreshInterval().toNanos();
+        if (current != null && checkTime != Long.MIN_VALUE && System.nanoTime() - checkTime <= interval) {
+            return current;
+        }
+
+        synchronized (this) {
+            current = snapshot;
+            if (current != null && checkTime != Long.MIN_VALUE && System.nanoTime() - checkTime <= interval) {
+                return current;
+            }
+
+            long version;
+            try {
+                version = versionCounter.get(VERSION_KEY);
+            } catch (Exception e) {
+                // 读取失败时继续使用本地目录
+                log.error("字典目录版本号读取失败: {}", e.getMessage(), e);
+                if (current != null) return current;
+                version = 0;
+            }
+
+            if (current == null || current.version() != version) {
+                current = load(version);
+                snapshot = current;
+            }
+            checkTime = System.nanoTime();
+            return current;
+        }
+    }
+
+    private Snapshot load(long version) {
+        List<DictDo> all = dictMapper.selectListByQuery(QueryWrapper.create()
+                .orderBy(DictDo::getType, true)
+                .orderBy(DictDo::getSort, true));
+
+        // 按类型分组, 组内保持排序
+        Map<String, List<DictDo>> groups = new LinkedHashMap<>();
+        for (DictDo dictDo : all) {
+            if (dictDo == null || dictDo.getType() == null) continue;
+            groups.computeIfAbsent(dictDo.getType(), key -> new ArrayList<>()).add(dictDo);
+        }
+
+        Map<String, List<DictDo>> types = new HashMap<>(groups.size() * 4 / 3 + 1);
+        Map<String, Map<String, DictDo>> keys = new HashMap<>(groups.size() * 4 / 3 + 1);
+        groups.forEach((type, dicts) -> {
+            types.put(type, List.copyOf(dicts));
+            Map<String, DictDo> typeKeys = new HashMap<>(dicts.size() * 4 / 3 + 1);
+            for (DictDo dictDo : dicts) {
+                if (dictDo.getKey() != null) typeKeys.putIfAbsent(dictDo.getKey(), dictDo);
+            }
+            keys.put(type, typeKeys);
+        });
+
+        log.info("字典目录加载成功, 版本号: {}, 类型数量: {}, 字典数量: {}", version, types.size(), all.size());
+        return new Snapshot(version, all.stream().filter(Objects::nonNull).toList(), types, keys);
+    }
+
+    /**
+     * @param all   全部字典, 按类型, 排序升序
+     * @param types 类型 -> 字典, 按排序升序
+     * @param keys  类型 -> 键 -> 字典
+     */
+    private record Snapshot(long version, List<DictDo> all,
+                            Map<String, List<DictDo>> types, Map<String, Map<String, DictDo>> keys) {
+    }
+
+    private record Serialized(Snapshot snapshot, SerializedResponse response) {
+    }
+}
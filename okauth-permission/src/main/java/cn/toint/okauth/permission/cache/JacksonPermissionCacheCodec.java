@@ -0,0 +1,63 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import cn.toint.okauth.permission.model.PermissionDo;
+import cn.toint.okauth.permission.model.RoleDo;
+import cn.toint.oktool.util.JacksonUtil;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.util.List;
+
+/**
+ * JSON 编解码
+ */
+public class JacksonPermissionCacheCodec implements PermissionCacheCodec {
+
+    @Override
+    public String encodeRoles(List<RoleDo> roleDos) {
+        return JacksonUtil.writeValueAsString(roleDos);
+    }
+
+    @Override
+    public List<RoleDo> decodeRoles(String value) {
+        return JacksonUtil.readValue(value, new TypeReference<>() {
+        });
+    }
+
+    @Override
+    public String encodePermissions(List<PermissionDo> permissionDos) {
+        return JacksonUtil.writeValueAsString(permissionDos);
+    }
+
+    @Override
+    public List<PermissionDo> decodePermissions(String value) {
+        return JacksonUtil.readValue(value, new TypeReference<>() {
+        });
+    }
+
+    @Override
+    public String encodeIds(long[] ids) {
+        return JacksonUtil.writeValueAsString(ids);
+    }
+
+    @Override
+    public long[] decodeIds(String value) {
+        return JacksonUtil.readValue(value, new TypeReference<>() {
+        });
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import cn.toint.okauth.permission.model.PermissionDo;
+import cn.toint.okauth.permission.model.RoleDo;
+
+import java.util.List;
+
+/**
+ * 权限缓存编解码
+ * 决定 userMtmRole/roleMtmPermission/权限目录缓存值在 Redis 中的存储格式, 可通过自定义 Bean 替换
+ */
+public interface PermissionCacheCodec {
+
+    String encodeRoles(List<RoleDo> roleDos);
+
+    /**
+     * @return 可修改的角色集合
+     */
+    List<RoleDo> decodeRoles(String value);
+
+    String encodePermissions(List<PermissionDo> permissionDos);
+
+    /**
+     * @return 可修改的权限集合
+     */
+    List<PermissionDo> decodePermissions(String value);
+
+    /**
+     * @param ids 有序的ID
+     */
+    String encodeIds(long[] ids);
+
+    long[] decodeIds(String value);
+}
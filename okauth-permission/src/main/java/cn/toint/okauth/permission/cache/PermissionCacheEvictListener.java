@@ -0,0 +1,66 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import java.util.Collection;
+
+/**
+ * 权限本地缓存失效监听
+ * 本节点或其他节点触发失效时回调, 用于同步清理依赖角色/权限的派生数据
+ */
+public interface PermissionCacheEvictListener {
+    /**
+     * 部分失效
+     *
+     * @param userIds 失效的用户ID
+     * @param roleIds 失效的角色ID
+     */
+    void onEvict(Collection<Long> userIds, Collection<Long> roleIds);
+
+    /**
+     * 全部失效
+     */
+    void onEvictAll();
+
+    /**
+     * 权限目录变更
+     *
+     * @param version 最新的目录版本号
+     */
+    default void onCatalogChange(long version) {
+    }
+
+    /**
+     * 绑定关系变更, 在同一次失效的 {@link #onEvict}/{@link #onEvictAll} 之前回调
+     * 参数为写入时的原始ID, 未展开到受影响的用户
+     *
+     * @param userIds 角色绑定发生变化的用户ID, 为null表示变更内容未知, 需要全量同步
+     * @param roleIds 用户绑定, 权限绑定或自身发生变化的角色ID, 为null表示变更内容未知, 需要全量同步
+     */
+    default void onBindingChange(Collection<Long> userIds, Collection<Long> roleIds) {
+    }
+
+    /**
+     * 其他节点的绑定关系变更, 在订阅线程中于失效之后回调, 默认直接转给 {@link #onBindingChange}
+     * 需要查询数据库的监听方应在后台同步, 同步完成后调用 afterSync 再次失效, 丢弃同步期间按旧绑定重建的缓存
+     *
+     * @param afterSync 再次失效本节点的相关缓存, 只有在后台同步时才需调用
+     */
+    default void onRemoteBindingChange(Collection<Long> userIds, Collection<Long> roleIds, Runnable afterSync) {
+        onBindingChange(userIds, roleIds);
+    }
+}
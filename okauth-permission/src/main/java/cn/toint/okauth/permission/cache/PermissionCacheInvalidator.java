@@ -0,0 +1,280 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import cn.toint.okauth.permission.constant.OkAuthPermissionConstant;
+import cn.toint.okauth.permission.event.ClearPermissionCacheEvent;
+import cn.toint.okauth.permission.mapper.RoleMtmPermissionMapper;
+import cn.toint.okauth.permission.mapper.UserMtmRoleMapper;
+import cn.toint.okauth.permission.model.PermissionCacheInvalidatorStats;
+import cn.toint.okauth.permission.model.RoleMtmPermissionDo;
+import cn.toint.okauth.permission.model.UserMtmRoleDo;
+import cn.toint.okauth.permission.properties.OkAuthPermissionProperties;
+import cn.toint.okauth.permission.service.DeptService;
+import com.mybatisflex.core.query.QueryWrapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 权限缓存失效流水线
+ * <p>
+ * {@link ClearPermissionCacheEvent} 在事务提交后进入流水线, 合并窗口内的事件合并为一个 {@link ClearPermissionCacheEvent.Detail},
+ * 由单个后台线程统一查询受影响的角色和用户, 删除命令通过管道批量发送.
+ * 展开在事务提交后执行, 只能查到变更后的绑定; 被移除绑定的用户需由发布方在写入前查询并放入事件.
+ * 管理端的批量操作无需等待缓存清除即可返回, 频繁的失效也只会产生少量 Redis 往返.
+ */
+@Slf4j
+@Component
+public class PermissionCacheInvalidator {
+
+    @Resource
+    private OkAuthPermissionProperties okAuthPermissionProperties;
+
+    @Resource
+    private RoleMtmPermissionMapper roleMtmPermissionMapper;
+
+    @Resource
+    private UserMtmRoleMapper userMtmRoleMapper;
+
+    @Resource
+    private PermissionCacheKeys permissionCacheKeys;
+
+    @Resource
+    private PermissionLocalCache permissionLocalCache;
+
+    @Resource
+    private RedisPipelineCache redisPipelineCache;
+
+    @Resource
+    private PermissionCatalog permissionCatalog;
+
+    @Resource
+    private PermissionGraph permissionGraph;
+
+    @Resource
+    private DeptService deptService;
+
+    /**
+     * 单线程执行, 同一时刻最多只有一个待执行的合并任务
+     */
+    private ScheduledExecutorService executor;
+
+    private final Object lock = new Object();
+
+    /**
+     * 等待执行的合并事件, 无等待事件时为null
+     */
+    private ClearPermissionCacheEvent.Detail pending;
+    private long pendingEvents;
+    private long pendingSince;
+
+    private final AtomicLong submittedEvents = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private volatile long lastFlushCostMillis;
+    private volatile long lastFlushKeys;
+
+    @PostConstruct
+    private void init() {
+        ScheduledThreadPoolExecutor scheduledThreadPoolExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "okauth-permission-invalidator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduledThreadPoolExecutor.setRemoveOnCancelPolicy(true);
+        executor = scheduledThreadPoolExecutor;
+    }
+
+    @PreDestroy
+    private void destroy() {
+        executor.shutdown();
+        // 停机前执行剩余的失效
+        flush();
+    }
+
+    /**
+     * 事务提交后接收事件, 无事务时立即接收
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onClearPermissionCache(ClearPermissionCacheEvent event) {
+        submittedEvents.incrementAndGet();
+        OkAuthPermissionProperties.Invalidator invalidator = okAuthPermissionProperties.getInvalidator();
+        if (!invalidator.isAsync()) {
+            invalidate(event.getSource());
+            return;
+        }
+
+        synchronized (lock) {
+            pendingEvents++;
+            if (pending != null) {
+                // 已有等待中的任务, 合并即可
+                pending.merge(event.getSource());
+                return;
+            }
+            pending = new ClearPermissionCacheEvent.Detail().merge(event.getSource());
+            pendingSince = System.nanoTime();
+        }
+        executor.schedule(this::flush, invalidator.getWindow().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 流水线指标
+     */
+    public PermissionCacheInvalidatorStats getStats() {
+        PermissionCacheInvalidatorStats stats = new PermissionCacheInvalidatorStats();
+        synchronized (lock) {
+            stats.setQueueDepth(pendingEvents);
+            stats.setLagMillis(pending == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pendingSince));
+        }
+        stats.setSubmittedEvents(submittedEvents.get());
+        stats.setFlushCount(flushCount.get());
+        stats.setLastFlushCostMillis(lastFlushCostMillis);
+        stats.setLastFlushKeys(lastFlushKeys);
+        return stats;
+    }
+
+    private void flush() {
+        ClearPermissionCacheEvent.Detail detail;
+        synchronized (lock) {
+            detail = pending;
+            pending = null;
+            pendingEvents = 0;
+        }
+        if (detail == null) return;
+
+        try {
+            invalidate(detail);
+        } catch (Exception e) {
+            // 失效失败时缓存依靠过期时间兜底
+            log.error("权限缓存失效执行失败: {}", e.getMessage(), e);
+        }
+    }
+
+    private void invalidate(ClearPermissionCacheEvent.Detail detail) {
+        long start = System.nanoTime();
+        Set<Long> userIds = detail.getUserIds();
+        Set<Long> permissionIds = detail.getPermissionIds();
+        Set<Long> roleIds = detail.getRoleIds();
+        // 原始的绑定变更, 需要在下面展开受影响的角色和用户之前复制
+        boolean graphEnabled = okAuthPermissionProperties.getGraph().isEnabled();
+        Set<Long> bindingUserIds = graphEnabled ? Set.copyOf(userIds) : Set.of();
+        Set<Long> bindingRoleIds = graphEnabled ? Set.copyOf(roleIds) : Set.of();
+
+        // 权限内容变更, 刷新权限目录
+        if (detail.isCatalog()) {
+            permissionCatalog.refresh();
+        }
+
+        // 不涉及角色与用户, 无需继续失效
+        if (detail.isEmpty()) {
+            recordFlush(start, 0);
+            return;
+        }
+
+        // 代际模式, 自增代际号即可, 旧缓存不再被读取, 到期自然清除
+        if (permissionCacheKeys.isEpochMode()) {
+            permissionLocalCache.changeBindings(bindingUserIds, bindingRoleIds);
+            long epoch = permissionCacheKeys.incrementEpoch();
+            permissionLocalCache.invalidateAll(epoch, bindingUserIds, bindingRoleIds);
+            recordFlush(start, 0);
+            return;
+        }
+
+        // 只要动了角色或者权限, 一定清除admin的缓存
+        roleIds.add(OkAuthPermissionConstant.Role.ADMIN_ID);
+
+        if (permissionGraph.isReady()) {
+            // 内存权限图已加载, 通过反向索引展开, 变更前后的用户都需要失效
+            expandByGraph(userIds, permissionIds, roleIds);
+            permissionLocalCache.changeBindings(bindingUserIds, bindingRoleIds);
+            expandByGraph(userIds, permissionIds, roleIds);
+        } else {
+            permissionLocalCache.changeBindings(bindingUserIds, bindingRoleIds);
+            expandByDatabase(userIds, permissionIds, roleIds);
+        }
+        // 通过部门继承了角色的用户
+        userIds.addAll(deptService.listUserIdByRoleIds(roleIds));
+
+        // 清除角色与权限关系缓存, 用户与角色关系缓存
+        List<String> cacheKeys = new ArrayList<>(roleIds.size() + userIds.size());
+        roleIds.stream()
+                .map(permissionCacheKeys::roleMtmPermission)
+                .forEach(cacheKeys::add);
+        userIds.stream()
+                .map(permissionCacheKeys::userMtmRole)
+                .forEach(cacheKeys::add);
+        redisPipelineCache.unlink(cacheKeys, okAuthPermissionProperties.getInvalidator().getBatchSize());
+
+        // 清除本地缓存, 并通知其他节点
+        permissionLocalCache.invalidate(userIds, roleIds, bindingUserIds, bindingRoleIds);
+        recordFlush(start, cacheKeys.size());
+    }
+
+    /**
+     * 通过内存权限图的反向索引展开受影响的角色和用户
+     */
+    private void expandByGraph(Set<Long> userIds, Set<Long> permissionIds, Set<Long> roleIds) {
+        if (!permissionIds.isEmpty()) {
+            long[] graphRoleIds = permissionGraph.getRoleIdsByPermissionIds(permissionIds);
+            if (graphRoleIds != null) Arrays.stream(graphRoleIds).forEach(roleIds::add);
+        }
+        long[] graphUserIds = permissionGraph.getUserIdsByRoleIds(roleIds);
+        if (graphUserIds != null) Arrays.stream(graphUserIds).forEach(userIds::add);
+    }
+
+    /**
+     * 通过关联查询展开受影响的角色和用户
+     */
+    private void expandByDatabase(Set<Long> userIds, Set<Long> permissionIds, Set<Long> roleIds) {
+        // 根据权限ID, 找到需要清除的角色
+        if (!permissionIds.isEmpty()) {
+            roleMtmPermissionMapper.selectListByQuery(QueryWrapper.create()
+                            .in(RoleMtmPermissionDo::getPermissionId, permissionIds))
+                    .stream()
+                    .map(RoleMtmPermissionDo::getRoleId)
+                    .forEach(roleIds::add);
+        }
+
+        // 根据角色, 找到关联的用户
+        if (!roleIds.isEmpty()) {
+            userMtmRoleMapper.selectListByQuery(QueryWrapper.create()
+                            .in(UserMtmRoleDo::getRoleId, roleIds))
+                    .stream()
+                    .map(UserMtmRoleDo::getUserId)
+                    .forEach(userIds::add);
+        }
+    }
+
+    private void recordFlush(long start, int keys) {
+        flushCount.incrementAndGet();
+        lastFlushCostMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        lastFlushKeys = keys;
+    }
+}
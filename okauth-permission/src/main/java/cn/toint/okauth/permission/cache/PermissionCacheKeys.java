@@ -0,0 +1,114 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import cn.toint.okauth.permission.constant.OkAuthPermissionConstant;
+import cn.toint.okauth.permission.model.CacheInvalidationModeEnum;
+import cn.toint.okauth.permission.properties.OkAuthPermissionProperties;
+import cn.toint.oktool.util.KeyBuilderUtil;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * 权限缓存键
+ * <p>
+ * 代际模式下, 缓存键携带全局代际号. 失效时自增代际号即可, 旧代际的缓存不再被读取, 到期自然清除,
+ * 无需查询受影响的用户, 也无需逐个删除.
+ */
+@Slf4j
+@Component
+public class PermissionCacheKeys {
+
+    /**
+     * 全局代际号
+     */
+    private static final String EPOCH_KEY = KeyBuilderUtil.of("permissionCache").build("epoch");
+
+    @Resource
+    private VersionCounter versionCounter;
+
+    @Resource
+    private OkAuthPermissionProperties okAuthPermissionProperties;
+
+    private volatile long epoch;
+
+    /**
+     * 上次从 Redis 刷新代际号的时间 (纳秒)
+     */
+    private volatile long refreshTime = Long.MIN_VALUE;
+
+    /**
+     * 是否代际模式
+     */
+    public boolean isEpochMode() {
+        return okAuthPermissionProperties.getInvalidationMode() == CacheInvalidationModeEnum.EPOCH;
+    }
+
+    /**
+     * 角色与权限关系缓存键
+     */
+    public String roleMtmPermission(Long roleId) {
+        return OkAuthPermissionConstant.roleMtmPermissionCacheKeyBuilder.build(withEpoch(roleId));
+    }
+
+    /**
+     * 用户与角色关系缓存键
+     */
+    public String userMtmRole(Long userId) {
+        return OkAuthPermissionConstant.userMtmRoleCacheKeyBuilder.build(withEpoch(userId));
+    }
+
+    /**
+     * 自增代际号, 使所有权限缓存失效
+     *
+     * @return 新的代际号
+     */
+    public long incrementEpoch() {
+        Long newEpoch = versionCounter.increment(EPOCH_KEY);
+        advanceEpoch(newEpoch == null ? epoch + 1 : newEpoch);
+        return epoch;
+    }
+
+    /**
+     * 收到其他节点通知的代际号, 只进不退
+     */
+    public synchronized void advanceEpoch(long newEpoch) {
+        if (newEpoch > epoch) {
+            epoch = newEpoch;
+        }
+        refreshTime = System.nanoTime();
+    }
+
+    private String withEpoch(Long id) {
+        if (!isEpochMode()) return String.valueOf(id);
+        return currentEpoch() + ":" + id;
+    }
+
+    private long currentEpoch() {
+        long interval = okAuthPermissionProperties.getEpochRefreshInterval().toNanos();
+        if (refreshTime == Long.MIN_VALUE || System.nanoTime() - refreshTime > interval) {
+            try {
+                advanceEpoch(versionCounter.get(EPOCH_KEY));
+            } catch (Exception e) {
+                // 刷新失败时继续使用本地代际号
+                log.error("权限缓存代际号刷新失败: {}", e.getMessage(), e);
+            }
+        }
+        return epoch;
+    }
+}
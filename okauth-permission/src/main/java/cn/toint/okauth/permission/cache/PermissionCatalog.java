@@ -0,0 +1,249 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import cn.toint.okauth.permission.mapper.PermissionMapper;
+import cn.toint.okauth.permission.model.PermissionDo;
+import cn.toint.okauth.permission.properties.OkAuthPermissionProperties;
+import cn.toint.oktool.util.KeyBuilderUtil;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 权限目录
+ * <p>
+ * 全部权限按ID保存一份, Redis 与本地内存各一份, 角色缓存中只保存权限ID.
+ * 目录带版本号, 修改权限内容时只需自增版本号, 无需失效持有该权限的角色和用户.
+ */
+@Slf4j
+@Component
+public class PermissionCatalog implements PermissionCacheEvictListener {
+
+    private static final KeyBuilderUtil catalogKeyBuilder = KeyBuilderUtil.of("permissionCatalog");
+
+    /**
+     * 目录版本号
+     */
+    private static final String VERSION_KEY = catalogKeyBuilder.build("version");
+
+    @Resource
+    private RedisPipelineCache redisPipelineCache;
+
+    @Resource
+    private VersionCounter versionCounter;
+
+    @Resource
+    private PermissionMapper permissionMapper;
+
+    @Resource
+    private PermissionCacheCodec permissionCacheCodec;
+
+    @Resource
+    private OkAuthPermissionProperties okAuthPermissionProperties;
+
+    @Resource
+    private SingleFlight singleFlight;
+
+    @Resource
+    private PermissionLocalCache permissionLocalCache;
+
+    /**
+     * 本地目录, 未加载时为null
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * 上次检查版本号的时间 (纳秒)
+     */
+    private volatile long checkTime = Long.MIN_VALUE;
+
+    /**
+     * 根据ID查询权限
+     *
+     * @return 不存在返回null
+     */
+    public PermissionDo get(Long id) {
+        if (id == null) return null;
+        Snapshot current = current();
+        int index = Arrays.binarySearch(current.ids(), id);
+        return index < 0 ? null : current.permissions()[index];
+    }
+
+    /**
+     * 根据ID批量查询权限, 不存在的ID忽略
+     * 两个有序数组同步向前查找, 不产生装箱
+     *
+     * @param ids 升序的权限ID
+     * @return 不可修改的权限集合
+     */
+    public List<PermissionDo> list(long[] ids) {
+        Snapshot current = current();
+        long[] catalogIds = current.ids();
+        PermissionDo[] permissions = current.permissions();
+
+        PermissionDo[] result = new PermissionDo[ids.length];
+        int size = 0;
+        int position = 0;
+        for (long id : ids) {
+            while (position < catalogIds.length && catalogIds[position] < id) {
+                position++;
+            }
+            if (position == catalogIds.length) break;
+            if (catalogIds[position] == id) {
+                result[size++] = permissions[position];
+            }
+        }
+        return List.of(size == result.length ? result : Arrays.copyOf(result, size));
+    }
+
+    /**
+     * 当前目录版本号
+     */
+    public long version() {
+        return current().version();
+    }
+
+    /**
+     * 全部权限ID
+     *
+     * @return 有序的权限ID, 不可修改
+     */
+    public long[] allIds() {
+        return current().ids();
+    }
+
+    /**
+     * 自增版本号, 本节点与其他节点在下次访问时重新加载目录
+     */
+    public void refresh() {
+        Long version = versionCounter.increment(VERSION_KEY);
+        permissionLocalCache.invalidateCatalog(version == null ? 0 : version);
+    }
+
+    @Override
+    public void onEvict(Collection<Long> userIds, Collection<Long> roleIds) {
+    }
+
+    @Override
+    public void onEvictAll() {
+    }
+
+    @Override
+    public void onCatalogChange(long version) {
+        Snapshot current = snapshot;
+        if (current == null || current.version() < version) {
+            // 下次访问时重新检查版本号
+            checkTime = Long.MIN_VALUE;
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        long interval = okAuthPermissionProperties.getCatalogRefreshInterval().toNanos();
+        if (current != null && checkTime != Long.MIN_VALUE && System.nanoTime() - checkTime <= interval) {
+            return current;
+        }
+
+        synchronized (this) {
+            current = snapshot;
+            if (current != null && checkTime != Long.MIN_VALUE && System.nanoTime() - checkTime <= interval) {
+                return current;
+            }
+
+            long version;
+            try {
+                version = versionCounter.get(VERSION_KEY);
+            } catch (Exception e) {
+                // 读取失败时继续使用本地目录
+                log.error("权限目录版本号读取失败: {}", e.getMessage(), e);
+                if (current != null) return current;
+                version = 0;
+            }
+
+            if (current == null || current.version() != version) {
+                current = load(version);
+                snapshot = current;
+            }
+            checkTime = System.nanoTime();
+            return current;
+        }
+    }
+
+    private Snapshot load(long version) {
+        String cacheKey = catalogKeyBuilder.build(String.valueOf(version));
+        List<PermissionDo> permissionDos = getCachePermissions(cacheKey, version);
+        if (permissionDos == null) {
+            permissionDos = singleFlight.load(cacheKey, () -> getCachePermissions(cacheKey, version), () -> {
+                List<PermissionDo> loadPermissionDos = permissionMapper.selectAll();
+                // 缓存值以版本号开头, 读取时校验
+                String cacheValue = version + ":" + permissionCacheCodec.encodePermissions(loadPermissionDos);
+                redisPipelineCache.put(cacheKey, cacheValue, okAuthPermissionProperties.getCacheTimeout());
+                return loadPermissionDos;
+            });
+        }
+
+        // 按ID排序, ID与权限按下标一一对应
+        PermissionDo[] permissions = permissionDos.stream()
+                .filter(permissionDo -> permissionDo != null && permissionDo.getId() != null)
+                .sorted(Comparator.comparing(PermissionDo::getId))
+                .toArray(PermissionDo[]::new);
+        long[] ids = new long[permissions.length];
+        for (int i = 0; i < permissions.length; i++) {
+            ids[i] = permissions[i].getId();
+        }
+        log.info("权限目录加载成功, 版本号: {}, 权限数量: {}", version, ids.length);
+        return new Snapshot(version, ids, permissions);
+    }
+
+    /**
+     * 读取缓存的目录
+     *
+     * @return 未命中, 版本号不一致或缓存值损坏返回null
+     */
+    private List<PermissionDo> getCachePermissions(String cacheKey, long version) {
+        String cacheValue = redisPipelineCache.get(cacheKey);
+        if (StringUtils.isBlank(cacheValue)) {
+            return null;
+        }
+        String prefix = version + ":";
+        if (!cacheValue.startsWith(prefix)) {
+            log.warn("权限目录缓存版本号与目录版本号[{}]不一致, 重新加载", version);
+            return null;
+        }
+        try {
+            return permissionCacheCodec.decodePermissions(cacheValue.substring(prefix.length()));
+        } catch (Exception e) {
+            // 缓存值损坏时按未命中处理, 重新加载后覆盖
+            log.warn("权限目录缓存解析失败, 重新加载: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param ids         升序的权限ID
+     * @param permissions 与ID下标对应的权限
+     */
+    private record Snapshot(long version, long[] ids, PermissionDo[] permissions) {
+    }
+}
@@ -0,0 +1,604 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import cn.toint.okauth.permission.mapper.RoleMapper;
+import cn.toint.okauth.permission.mapper.RoleMtmPermissionMapper;
+import cn.toint.okauth.permission.mapper.UserMtmRoleMapper;
+import cn.toint.okauth.permission.model.RoleDo;
+import cn.toint.okauth.permission.model.RoleMtmPermissionDo;
+import cn.toint.okauth.permission.model.UserMtmRoleDo;
+import cn.toint.okauth.permission.properties.OkAuthPermissionProperties;
+import cn.toint.okauth.permission.util.LongAdjacency;
+import cn.toint.okauth.permission.util.SortedLongArrays;
+import com.mybatisflex.core.BaseMapper;
+import com.mybatisflex.core.query.QueryWrapper;
+import com.mybatisflex.core.util.LambdaGetter;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * 内存权限图
+ * <p>
+ * 开启后将 user_mtm_role 与 role_mtm_permission 全量加载为双向的压缩邻接表 (用户 <-> 角色, 角色 <-> 权限),
+ * 角色本身保存在内存中, 权限内容由 {@link PermissionCatalog} 提供.
+ * 写入产生的绑定变更通过 {@link #onBindingChange} 增量同步到各节点, 变更累计到一定数量后合并到邻接表.
+ * 其他节点的变更在后台线程同步, 不阻塞 Redis 订阅线程, 同步完成后再次失效本地缓存.
+ * 增量同步只重新查询事件中列出的用户与角色, 不按角色展开其全部用户; 数据库查询在锁外执行, 只在替换快照时持有锁.
+ * 校验时角色与权限关系直接从内存读取, 不经过 Redis; 反向查询 (权限 -> 角色 -> 用户) 只与受影响的数量相关, 无需扫表.
+ * 加载完成前返回null, 调用方继续使用缓存或数据库.
+ */
+@Slf4j
+@Component
+public class PermissionGraph implements PermissionCacheEvictListener {
+
+    @Resource
+    private OkAuthPermissionProperties okAuthPermissionProperties;
+
+    @Resource
+    private UserMtmRoleMapper userMtmRoleMapper;
+
+    @Resource
+    private RoleMtmPermissionMapper roleMtmPermissionMapper;
+
+    @Resource
+    private RoleMapper roleMapper;
+
+    /**
+     * 全量加载与其他节点的增量同步在后台线程执行, 不阻塞启动与 Redis 订阅线程
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "okauth-permission-graph");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Object lock = new Object();
+
+    /**
+     * 串行执行增量同步, 保证后查询的结果后替换, 不阻塞读取与全量加载
+     */
+    private final Object syncLock = new Object();
+
+    /**
+     * 当前快照, 加载完成前为null
+     */
+    private volatile Snapshot snapshot;
+
+    /**
+     * 快照版本号, 每次加载或同步变更后自增, 需持有锁修改
+     */
+    private volatile long version;
+
+    /**
+     * 合并后的用户角色邻接表, 同一份关系只合并一次, 供导出复用
+     */
+    private volatile CompactedUserRoles compactedUserRoles;
+
+    /**
+     * 全量加载期间收到的变更, 加载完成后重新同步, 未在加载时为null
+     */
+    private Set<Long> loadingUserIds;
+    private Set<Long> loadingRoleIds;
+
+    @PreDestroy
+    private void destroy() {
+        executor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (isEnabled()) reload();
+    }
+
+    /**
+     * 在后台全量重新加载
+     */
+    public void reload() {
+        synchronized (lock) {
+            if (loadingUserIds != null) return;
+            loadingUserIds = new HashSet<>();
+            loadingRoleIds = new HashSet<>();
+        }
+        executor.execute(this::load);
+    }
+
+    /**
+     * 是否已加载完成
+     */
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * 快照版本号, 用于判断加载或同步变更后是否需要重新导出
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * 按用户ID升序遍历用户直接绑定的角色ID
+     *
+     * @return 是否已加载完成, 未加载完成时不遍历
+     */
+    public boolean forEachUserRoles(LongAdjacency.EntryConsumer consumer) {
+        Snapshot current = snapshot;
+        if (current == null) return false;
+        compactUserRoles(current.userRoles()).forEach(consumer);
+        return true;
+    }
+
+    /**
+     * 查询用户直接绑定的角色
+     *
+     * @return 未加载完成返回null
+     */
+    public List<RoleDo> listRoles(Long userId) {
+        return listRoles(userId, SortedLongArrays.EMPTY);
+    }
+
+    /**
+     * 查询用户直接绑定的角色, 并合并其他途径获得的角色, 如通过部门继承的角色
+     *
+     * @param extraRoleIds 升序的角色ID, 不存在的角色忽略
+     * @return 未加载完成返回null
+     */
+    public List<RoleDo> listRoles(Long userId, long[] extraRoleIds) {
+        Snapshot current = snapshot;
+        if (current == null) return null;
+
+        List<RoleDo> roleDos = new ArrayList<>();
+        LongConsumer collector = roleId -> {
+            RoleDo roleDo = current.roles().get(roleId);
+            if (roleDo != null) roleDos.add(roleDo);
+        };
+        if (extraRoleIds.length == 0) {
+            current.userRoles().forEach(userId, collector);
+        } else {
+            for (long roleId : SortedLongArrays.union(List.of(current.userRoles().get(userId), extraRoleIds))) {
+                collector.accept(roleId);
+            }
+        }
+        return List.copyOf(roleDos);
+    }
+
+    /**
+     * 查询角色绑定的权限ID
+     *
+     * @return 升序的权限ID, 不可修改, 未加载完成返回null
+     */
+    public long[] getPermissionIds(Long roleId) {
+        Snapshot current = snapshot;
+        if (current == null) return null;
+        return current.rolePermissions().get(roleId);
+    }
+
+    /**
+     * 查询角色绑定的用户ID
+     *
+     * @return 升序的用户ID, 不可修改, 未加载完成返回null
+     */
+    public long[] getUserIds(Long roleId) {
+        Snapshot current = snapshot;
+        if (current == null) return null;
+        return current.userRoles().reverse(roleId);
+    }
+
+    /**
+     * 反向查询绑定了任意一个权限的角色
+     *
+     * @return 升序的角色ID, 未加载完成返回null
+     */
+    public long[] getRoleIdsByPermissionIds(Collection<Long> permissionIds) {
+        Snapshot current = snapshot;
+        if (current == null) return null;
+        List<long[]> roleIds = new ArrayList<>(permissionIds.size());
+        permissionIds.forEach(permissionId -> roleIds.add(current.rolePermissions().reverse(permissionId)));
+        return SortedLongArrays.union(roleIds);
+    }
+
+    /**
+     * 反向查询绑定了任意一个角色的用户
+     *
+     * @return 升序的用户ID, 未加载完成返回null
+     */
+    public long[] getUserIdsByRoleIds(Collection<Long> roleIds) {
+        Snapshot current = snapshot;
+        if (current == null) return null;
+        List<long[]> userIds = new ArrayList<>(roleIds.size());
+        roleIds.forEach(roleId -> userIds.add(current.userRoles().reverse(roleId)));
+        return SortedLongArrays.union(userIds);
+    }
+
+    @Override
+    public void onBindingChange(Collection<Long> userIds, Collection<Long> roleIds) {
+        if (!isEnabled()) return;
+
+        // 变更内容未知, 全量同步, 同步完成前调用方回退到缓存
+        if (userIds == null || roleIds == null) {
+            synchronized (lock) {
+                snapshot = null;
+            }
+            reload();
+            return;
+        }
+
+        try {
+            synchronized (lock) {
+                if (loadingUserIds != null) {
+                    loadingUserIds.addAll(userIds);
+                    loadingRoleIds.addAll(roleIds);
+                }
+                if (snapshot == null) return;
+            }
+            sync(userIds, roleIds);
+        } catch (Exception e) {
+            // 增量同步失败时不能继续使用旧数据, 全量重新加载
+            log.error("内存权限图增量同步失败, 重新加载: {}", e.getMessage(), e);
+            synchronized (lock) {
+                snapshot = null;
+            }
+            reload();
+        }
+    }
+
+    @Override
+    public void onRemoteBindingChange(Collection<Long> userIds, Collection<Long> roleIds, Runnable afterSync) {
+        if (!isEnabled()) return;
+        Set<Long> copiedUserIds = userIds == null ? null : new HashSet<>(userIds);
+        Set<Long> copiedRoleIds = roleIds == null ? null : new HashSet<>(roleIds);
+        executor.execute(() -> {
+            onBindingChange(copiedUserIds, copiedRoleIds);
+            // 同步期间读取旧绑定重建的缓存一并丢弃
+            afterSync.run();
+        });
+    }
+
+    @Override
+    public void onEvict(Collection<Long> userIds, Collection<Long> roleIds) {
+        // 绑定关系已在 onBindingChange 中同步
+    }
+
+    @Override
+    public void onEvictAll() {
+        // 绑定关系已在 onBindingChange 中同步, 无需重新加载
+    }
+
+    private void load() {
+        try {
+            long start = System.currentTimeMillis();
+            Map<Long, RoleDo> roles = new HashMap<>();
+            roleMapper.selectAll().forEach(roleDo -> roles.put(roleDo.getId(), roleDo));
+            LongAdjacency userRoles = loadAdjacency(userMtmRoleMapper,
+                    UserMtmRoleDo::getUserId, UserMtmRoleDo::getRoleId,
+                    UserMtmRoleDo::getUserId, UserMtmRoleDo::getRoleId);
+            LongAdjacency rolePermissions = loadAdjacency(roleMtmPermissionMapper,
+                    RoleMtmPermissionDo::getRoleId, RoleMtmPermissionDo::getPermissionId,
+                    RoleMtmPermissionDo::getRoleId, RoleMtmPermissionDo::getPermissionId);
+            Snapshot loaded = new Snapshot(Relation.of(userRoles), Relation.of(rolePermissions), Map.copyOf(roles));
+
+            Set<Long> userIds;
+            Set<Long> roleIds;
+            synchronized (lock) {
+                snapshot = loaded;
+                version++;
+                userIds = loadingUserIds;
+                roleIds = loadingRoleIds;
+                loadingUserIds = null;
+                loadingRoleIds = null;
+            }
+            // 补上加载期间发生的变更
+            if (!userIds.isEmpty() || !roleIds.isEmpty()) {
+                sync(userIds, roleIds);
+            }
+            log.info("内存权限图加载成功, 用户角色关系: {}, 角色权限关系: {}, 耗时: {}ms",
+                    userRoles.size(), rolePermissions.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            synchronized (lock) {
+                loadingUserIds = null;
+                loadingRoleIds = null;
+            }
+            log.error("内存权限图加载失败, 继续使用缓存: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 按 (键, 值) 顺序分页加载关联表
+     * 以上一页最后一条的 (键, 值) 作为起点, 避免深分页
+     */
+    private <T> LongAdjacency loadAdjacency(BaseMapper<T> mapper,
+                                            LambdaGetter<T> keyColumn, LambdaGetter<T> valueColumn,
+                                            Function<T, Long> keyGetter, Function<T, Long> valueGetter) {
+        int batchSize = okAuthPermissionProperties.getGraph().getBatchSize();
+        LongAdjacency.Builder builder = LongAdjacency.builder();
+        Long lastKey = null;
+        Long lastValue = null;
+        while (true) {
+            QueryWrapper queryWrapper = QueryWrapper.create()
+                    .select(keyColumn, valueColumn)
+                    .isNotNull(keyColumn)
+                    .isNotNull(valueColumn);
+            if (lastKey != null) {
+                Long key = lastKey;
+                Long value = lastValue;
+                queryWrapper.and(wrapper -> wrapper.gt(keyColumn, key)
+                        .or(orWrapper -> orWrapper.eq(keyColumn, key).gt(valueColumn, value)));
+            }
+            queryWrapper.orderBy(keyColumn, true)
+                    .orderBy(valueColumn, true)
+                    .limit(batchSize);
+
+            List<T> rows = mapper.selectListByQuery(queryWrapper);
+            for (T row : rows) {
+                builder.add(keyGetter.apply(row), valueGetter.apply(row));
+            }
+            if (rows.size() < batchSize) break;
+            T last = rows.get(rows.size() - 1);
+            lastKey = keyGetter.apply(last);
+            lastValue = valueGetter.apply(last);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 增量同步绑定变更
+     * 在锁外查询数据库, 查询完成后持有锁替换快照
+     *
+     * @param userIds 角色绑定发生变化的用户, 包括被移除绑定的用户, 发布方负责列全
+     * @param roleIds 自身或权限绑定发生变化的角色, 不展开到角色的用户
+     */
+    private void sync(Collection<Long> userIds, Collection<Long> roleIds) {
+        synchronized (syncLock) {
+            Changes changes = query(userIds, roleIds);
+            synchronized (lock) {
+                if (snapshot != null) apply(changes);
+            }
+        }
+    }
+
+    /**
+     * 查询变更后的绑定, 不持有锁
+     */
+    private Changes query(Collection<Long> userIds, Collection<Long> roleIds) {
+        Set<Long> affectedUserIds = new HashSet<>(userIds);
+        affectedUserIds.remove(null);
+        Map<Long, long[]> userRoleIds = Map.of();
+        Map<Long, long[]> rolePermissionIds = Map.of();
+        List<RoleDo> roleDos = List.of();
+
+        // 1. 重新加载变更用户的角色
+        if (!affectedUserIds.isEmpty()) {
+            Map<Long, TreeSet<Long>> userRoleIdSets = new HashMap<>();
+            affectedUserIds.forEach(userId -> userRoleIdSets.put(userId, new TreeSet<>()));
+            int batchSize = okAuthPermissionProperties.getGraph().getBatchSize();
+            List<Long> affectedUserIdList = new ArrayList<>(affectedUserIds);
+            for (int from = 0; from < affectedUserIdList.size(); from += batchSize) {
+                List<Long> batch = affectedUserIdList.subList(from, Math.min(from + batchSize, affectedUserIdList.size()));
+                userMtmRoleMapper.selectListByQuery(QueryWrapper.create()
+                                .select(UserMtmRoleDo::getUserId, UserMtmRoleDo::getRoleId)
+                                .in(UserMtmRoleDo::getUserId, batch))
+                        .stream()
+                        .filter(userMtmRoleDo -> userMtmRoleDo.getRoleId() != null)
+                        .forEach(userMtmRoleDo -> userRoleIdSets.get(userMtmRoleDo.getUserId()).add(userMtmRoleDo.getRoleId()));
+            }
+            userRoleIds = toArrays(userRoleIdSets);
+        }
+
+        // 2. 重新加载变更角色本身及其权限
+        if (!roleIds.isEmpty()) {
+            Map<Long, TreeSet<Long>> rolePermissionIdSets = new HashMap<>();
+            roleIds.forEach(roleId -> rolePermissionIdSets.put(roleId, new TreeSet<>()));
+            int batchSize = okAuthPermissionProperties.getGraph().getBatchSize();
+            List<Long> roleIdList = new ArrayList<>(roleIds);
+            List<RoleDo> loadedRoleDos = new ArrayList<>();
+            for (int from = 0; from < roleIdList.size(); from += batchSize) {
+                List<Long> batch = roleIdList.subList(from, Math.min(from + batchSize, roleIdList.size()));
+                roleMtmPermissionMapper.selectListByQuery(QueryWrapper.create()
+                                .select(RoleMtmPermissionDo::getRoleId, RoleMtmPermissionDo::getPermissionId)
+                                .in(RoleMtmPermissionDo::getRoleId, batch))
+                        .stream()
+                        .filter(roleMtmPermissionDo -> roleMtmPermissionDo.getPermissionId() != null)
+                        .forEach(roleMtmPermissionDo -> rolePermissionIdSets.get(roleMtmPermissionDo.getRoleId())
+                                .add(roleMtmPermissionDo.getPermissionId()));
+                loadedRoleDos.addAll(roleMapper.selectListByIds(batch));
+            }
+            rolePermissionIds = toArrays(rolePermissionIdSets);
+            roleDos = loadedRoleDos;
+        }
+        return new Changes(userRoleIds, rolePermissionIds, Set.copyOf(roleIds), roleDos);
+    }
+
+    /**
+     * 将查询到的变更替换到快照, 需持有锁
+     */
+    private void apply(Changes changes) {
+        Snapshot current = snapshot;
+        Relation userRoles = current.userRoles();
+        Relation rolePermissions = current.rolePermissions();
+        Map<Long, RoleDo> roles = current.roles();
+
+        if (!changes.userRoleIds().isEmpty()) {
+            userRoles = userRoles.update(changes.userRoleIds());
+        }
+        if (!changes.roleIds().isEmpty()) {
+            rolePermissions = rolePermissions.update(changes.rolePermissionIds());
+            Map<Long, RoleDo> updatedRoles = new HashMap<>(roles);
+            changes.roleIds().forEach(updatedRoles::remove);
+            changes.roleDos().forEach(roleDo -> updatedRoles.put(roleDo.getId(), roleDo));
+            roles = Map.copyOf(updatedRoles);
+        }
+
+        // 变更累计过多时合并到邻接表
+        int compactThreshold = okAuthPermissionProperties.getGraph().getCompactThreshold();
+        if (userRoles.changeCount() > compactThreshold) userRoles = userRoles.compact();
+        if (rolePermissions.changeCount() > compactThreshold) rolePermissions = rolePermissions.compact();
+        snapshot = new Snapshot(userRoles, rolePermissions, roles);
+        version++;
+    }
+
+    /**
+     * 合并用户角色关系, 与上次合并的是同一份关系时直接复用
+     */
+    private LongAdjacency compactUserRoles(Relation userRoles) {
+        if (userRoles.changeCount() == 0) return userRoles.forward();
+        CompactedUserRoles compacted = compactedUserRoles;
+        if (compacted == null || compacted.source() != userRoles) {
+            compacted = new CompactedUserRoles(userRoles, userRoles.compact().forward());
+            compactedUserRoles = compacted;
+        }
+        return compacted.forward();
+    }
+
+    private static Map<Long, long[]> toArrays(Map<Long, TreeSet<Long>> values) {
+        Map<Long, long[]> result = new HashMap<>();
+        values.forEach((key, valueSet) -> result.put(key, valueSet.stream().mapToLong(Long::longValue).toArray()));
+        return result;
+    }
+
+    private boolean isEnabled() {
+        return okAuthPermissionProperties.getGraph().isEnabled();
+    }
+
+    /**
+     * 查询到的变更
+     *
+     * @param userRoleIds       用户 -> 变更后的角色
+     * @param rolePermissionIds 角色 -> 变更后的权限
+     * @param roleIds           变更的角色
+     * @param roleDos           变更角色的最新内容, 已删除的角色不包含在内
+     */
+    private record Changes(Map<Long, long[]> userRoleIds, Map<Long, long[]> rolePermissionIds,
+                           Set<Long> roleIds, List<RoleDo> roleDos) {
+    }
+
+    /**
+     * @param source  合并前的关系
+     * @param forward 合并后的正向邻接表
+     */
+    private record CompactedUserRoles(Relation source, LongAdjacency forward) {
+    }
+
+    /**
+     * 不可变快照
+     *
+     * @param userRoles       用户 -> 角色, 反向为 角色 -> 用户
+     * @param rolePermissions 角色 -> 权限, 反向为 权限 -> 角色
+     * @param roles           角色ID -> 角色
+     */
+    private record Snapshot(Relation userRoles, Relation rolePermissions, Map<Long, RoleDo> roles) {
+    }
+
+    /**
+     * 双向关系
+     * 正反两个方向各自保存为邻接表加增量变更, 读取时先查增量变更, 再查邻接表
+     */
+    private record Relation(LongAdjacency forward, LongAdjacency backward,
+                            Map<Long, long[]> forwardChanges, Map<Long, long[]> backwardChanges) {
+
+        static Relation of(LongAdjacency forward) {
+            return new Relation(forward, forward.invert(), Map.of(), Map.of());
+        }
+
+        long[] get(long key) {
+            long[] changed = forwardChanges.get(key);
+            return changed != null ? changed : forward.get(key);
+        }
+
+        long[] reverse(long value) {
+            long[] changed = backwardChanges.get(value);
+            return changed != null ? changed : backward.get(value);
+        }
+
+        void forEach(long key, LongConsumer consumer) {
+            long[] changed = forwardChanges.get(key);
+            if (changed == null) {
+                forward.forEach(key, consumer);
+                return;
+            }
+            for (long value : changed) {
+                consumer.accept(value);
+            }
+        }
+
+        /**
+         * 替换部分键的值, 并同步反向关系
+         *
+         * @param updates 键 -> 新的值 (升序且无重复)
+         */
+        Relation update(Map<Long, long[]> updates) {
+            Map<Long, Set<Long>> added = new HashMap<>();
+            Map<Long, Set<Long>> removed = new HashMap<>();
+            updates.forEach((key, newValues) -> {
+                long[] oldValues = get(key);
+                for (long value : newValues) {
+                    if (Arrays.binarySearch(oldValues, value) < 0) {
+                        added.computeIfAbsent(value, k -> new HashSet<>()).add(key);
+                    }
+                }
+                for (long value : oldValues) {
+                    if (Arrays.binarySearch(newValues, value) < 0) {
+                        removed.computeIfAbsent(value, k -> new HashSet<>()).add(key);
+                    }
+                }
+            });
+
+            Map<Long, long[]> newForwardChanges = new HashMap<>(forwardChanges);
+            newForwardChanges.putAll(updates);
+
+            Map<Long, long[]> newBackwardChanges = new HashMap<>(backwardChanges);
+            Set<Long> changedValues = new HashSet<>(added.keySet());
+            changedValues.addAll(removed.keySet());
+            for (Long value : changedValues) {
+                TreeSet<Long> keys = new TreeSet<>();
+                for (long key : reverse(value)) {
+                    keys.add(key);
+                }
+                keys.addAll(added.getOrDefault(value, Set.of()));
+                keys.removeAll(removed.getOrDefault(value, Set.of()));
+                newBackwardChanges.put(value, keys.stream().mapToLong(Long::longValue).toArray());
+            }
+            return new Relation(forward, backward, Map.copyOf(newForwardChanges), Map.copyOf(newBackwardChanges));
+        }
+
+        int changeCount() {
+            return forwardChanges.size() + backwardChanges.size();
+        }
+
+        Relation compact() {
+            return new Relation(forward.merge(forwardChanges), backward.merge(backwardChanges), Map.of(), Map.of());
+        }
+    }
+}
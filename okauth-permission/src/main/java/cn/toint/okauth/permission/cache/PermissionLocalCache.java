@@ -0,0 +1,301 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import cn.toint.okauth.permission.model.PermissionCacheClearMessage;
+import cn.toint.okauth.permission.model.RoleDo;
+import cn.toint.okauth.permission.properties.OkAuthPermissionProperties;
+import cn.toint.oktool.util.JacksonUtil;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 权限本地缓存 (L1)
+ * <p>
+ * 位于 oktool Cache (Redis) 之前, 保存已反序列化的不可变角色集合与角色的权限ID集合,
+ * 命中时无需网络往返和 JSON 解析. 各节点通过 Redis 频道互相通知失效.
+ * 权限本身的内容由 {@link PermissionCatalog} 统一保存.
+ */
+@Slf4j
+@Component
+public class PermissionLocalCache implements MessageListener {
+
+    @Resource
+    private OkAuthPermissionProperties okAuthPermissionProperties;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Resource
+    private ObjectProvider<PermissionCacheEvictListener> evictListeners;
+
+    @Resource
+    private PermissionCacheKeys permissionCacheKeys;
+
+    /**
+     * 用户ID -> 角色集合
+     */
+    private Cache<Long, List<RoleDo>> userMtmRoleCache;
+
+    /**
+     * 角色ID -> 有序的权限ID集合
+     */
+    private Cache<Long, long[]> roleMtmPermissionCache;
+
+    /**
+     * 当前节点标识, 随失效消息发送, 用于忽略自己发送的消息
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 失效版本号, 每次失效自增
+     * 加载前记录, 写入时比对, 避免加载期间发生的失效被旧数据覆盖
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    private void init() {
+        OkAuthPermissionProperties.LocalCache localCache = okAuthPermissionProperties.getLocalCache();
+        userMtmRoleCache = Caffeine.newBuilder()
+                .maximumSize(localCache.getMaximumSize())
+                .expireAfterWrite(localCache.getExpireAfterWrite())
+                .build();
+        roleMtmPermissionCache = Caffeine.newBuilder()
+                .maximumSize(localCache.getMaximumSize())
+                .expireAfterWrite(localCache.getExpireAfterWrite())
+                .build();
+
+        // 代际号与目录版本号需要同步到其他节点, 即使本地缓存未开启也要监听
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(localCache.getChannel()));
+        log.info("权限本地缓存初始化成功, 失效频道: {}", localCache.getChannel());
+    }
+
+    /**
+     * 当前失效版本号
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * 查询用户角色
+     *
+     * @return 未命中返回null
+     */
+    public List<RoleDo> getRoles(Long userId) {
+        if (!isEnabled()) return null;
+        return userMtmRoleCache.getIfPresent(userId);
+    }
+
+    /**
+     * 缓存用户角色
+     *
+     * @param generation 加载前的失效版本号
+     * @return 不可变的角色集合
+     */
+    public List<RoleDo> putRoles(Long userId, List<RoleDo> roleDos, long generation) {
+        List<RoleDo> value = roleDos.stream().filter(Objects::nonNull).toList();
+        if (isEnabled() && this.generation.get() == generation) {
+            userMtmRoleCache.put(userId, value);
+        }
+        return value;
+    }
+
+    /**
+     * 查询角色的权限ID
+     *
+     * @return 未命中返回null, 返回的数组不可修改
+     */
+    public long[] getPermissionIds(Long roleId) {
+        if (!isEnabled()) return null;
+        return roleMtmPermissionCache.getIfPresent(roleId);
+    }
+
+    /**
+     * 缓存角色的权限ID
+     *
+     * @param permissionIds 有序的权限ID, 写入后不可修改
+     * @param generation    加载前的失效版本号
+     * @return 权限ID
+     */
+    public long[] putPermissionIds(Long roleId, long[] permissionIds, long generation) {
+        if (isEnabled() && this.generation.get() == generation) {
+            roleMtmPermissionCache.put(roleId, permissionIds);
+        }
+        return permissionIds;
+    }
+
+    /**
+     * 失效本节点缓存, 并广播到其他节点
+     * 绑定变更需已通过 {@link #changeBindings} 在本节点同步, 这里只广播, 其他节点在失效后于后台同步
+     *
+     * @param bindingUserIds 角色绑定发生变化的用户ID (未展开), 无需同步绑定关系时传空集合
+     * @param bindingRoleIds 绑定关系或自身发生变化的角色ID (未展开), 无需同步绑定关系时传空集合
+     */
+    public void invalidate(Collection<Long> userIds, Collection<Long> roleIds,
+                           Collection<Long> bindingUserIds, Collection<Long> bindingRoleIds) {
+        evict(userIds, roleIds);
+
+        PermissionCacheClearMessage message = new PermissionCacheClearMessage();
+        message.getUserIds().addAll(userIds);
+        message.getRoleIds().addAll(roleIds);
+        message.getBindingUserIds().addAll(bindingUserIds);
+        message.getBindingRoleIds().addAll(bindingRoleIds);
+        publish(message);
+    }
+
+    /**
+     * 清空本节点全部缓存, 并广播到其他节点
+     * 绑定变更需已通过 {@link #changeBindings} 在本节点同步, 这里只广播, 其他节点在失效后于后台同步
+     *
+     * @param epoch          最新的缓存代际号, 非代际模式传null
+     * @param bindingUserIds 角色绑定发生变化的用户ID (未展开), 无需同步绑定关系时传空集合
+     * @param bindingRoleIds 绑定关系或自身发生变化的角色ID (未展开), 无需同步绑定关系时传空集合
+     */
+    public void invalidateAll(Long epoch, Collection<Long> bindingUserIds, Collection<Long> bindingRoleIds) {
+        evictAll();
+
+        PermissionCacheClearMessage message = new PermissionCacheClearMessage();
+        message.setAll(true);
+        message.setEpoch(epoch);
+        message.getBindingUserIds().addAll(bindingUserIds);
+        message.getBindingRoleIds().addAll(bindingRoleIds);
+        publish(message);
+    }
+
+    /**
+     * 通知本节点权限目录已变更, 并广播到其他节点
+     *
+     * @param catalogVersion 最新的目录版本号
+     */
+    public void invalidateCatalog(long catalogVersion) {
+        changeCatalog(catalogVersion);
+
+        PermissionCacheClearMessage message = new PermissionCacheClearMessage();
+        message.setCatalogVersion(catalogVersion);
+        publish(message);
+    }
+
+    private void publish(PermissionCacheClearMessage message) {
+        // 代际号, 目录版本号与绑定关系需要同步到其他节点, 即使本地缓存未开启也要广播
+        if (!isEnabled() && message.getEpoch() == null && message.getCatalogVersion() == null
+                && message.getBindingUserIds().isEmpty() && message.getBindingRoleIds().isEmpty()) return;
+        message.setNodeId(nodeId);
+        try {
+            stringRedisTemplate.convertAndSend(okAuthPermissionProperties.getLocalCache().getChannel(),
+                    JacksonUtil.writeValueAsString(message));
+        } catch (Exception e) {
+            // 广播失败时其他节点依靠过期时间兜底
+            log.error("权限本地缓存失效广播失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            PermissionCacheClearMessage clearMessage = JacksonUtil.readValue(body, new TypeReference<>() {
+            });
+            // 本节点发送前已在本地执行过失效与绑定同步
+            if (nodeId.equals(clearMessage.getNodeId())) return;
+            if (clearMessage.getEpoch() != null) {
+                permissionCacheKeys.advanceEpoch(clearMessage.getEpoch());
+            }
+            if (clearMessage.getCatalogVersion() != null) {
+                changeCatalog(clearMessage.getCatalogVersion());
+            }
+            Runnable evict = () -> {
+                if (clearMessage.isAll()) {
+                    evictAll();
+                } else if (!clearMessage.getUserIds().isEmpty() || !clearMessage.getRoleIds().isEmpty()) {
+                    evict(clearMessage.getUserIds(), clearMessage.getRoleIds());
+                }
+            };
+            // 先失效, 绑定同步需要查询数据库, 由监听方在后台执行, 不阻塞订阅线程
+            evict.run();
+            Collection<Long> bindingUserIds = clearMessage.getBindingUserIds();
+            Collection<Long> bindingRoleIds = clearMessage.getBindingRoleIds();
+            if (!bindingUserIds.isEmpty() || !bindingRoleIds.isEmpty()) {
+                evictListeners.orderedStream()
+                        .forEach(listener -> listener.onRemoteBindingChange(bindingUserIds, bindingRoleIds, evict));
+            }
+        } catch (Exception e) {
+            // 无法解析时清空全部, 宁可多查也不能放过旧权限
+            log.error("权限本地缓存失效消息解析失败, 清空全部本地缓存: {}", e.getMessage(), e);
+            evictListeners.orderedStream().forEach(listener -> listener.onBindingChange(null, null));
+            evictAll();
+        }
+    }
+
+    /**
+     * 清空本节点全部缓存
+     */
+    public void evictAll() {
+        generation.incrementAndGet();
+        userMtmRoleCache.invalidateAll();
+        roleMtmPermissionCache.invalidateAll();
+        evictListeners.orderedStream().forEach(PermissionCacheEvictListener::onEvictAll);
+    }
+
+    private void evict(Collection<Long> userIds, Collection<Long> roleIds) {
+        generation.incrementAndGet();
+        if (userIds != null) userMtmRoleCache.invalidateAll(userIds);
+        if (roleIds != null) roleMtmPermissionCache.invalidateAll(roleIds);
+        evictListeners.orderedStream().forEach(listener -> listener.onEvict(userIds, roleIds));
+    }
+
+    /**
+     * 在本节点同步绑定变更, 需在失效缓存之前调用
+     *
+     * @param userIds 角色绑定发生变化的用户ID (未展开)
+     * @param roleIds 绑定关系或自身发生变化的角色ID (未展开)
+     */
+    public void changeBindings(Collection<Long> userIds, Collection<Long> roleIds) {
+        if (userIds.isEmpty() && roleIds.isEmpty()) return;
+        evictListeners.orderedStream().forEach(listener -> listener.onBindingChange(userIds, roleIds));
+    }
+
+    private void changeCatalog(long catalogVersion) {
+        generation.incrementAndGet();
+        evictListeners.orderedStream().forEach(listener -> listener.onCatalogChange(catalogVersion));
+    }
+
+    private boolean isEnabled() {
+        return okAuthPermissionProperties.getLocalCache().isEnabled();
+    }
+}
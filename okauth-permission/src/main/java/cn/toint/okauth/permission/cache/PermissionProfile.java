@@ -0,0 +1,99 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import cn.toint.okauth.permission.model.PermissionDo;
+import cn.toint.okauth.permission.model.PermissionTreeResponse;
+import cn.toint.okauth.permission.model.SerializedResponse;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 权限画像
+ * <p>
+ * 同一组角色的有效权限只计算一次, 拥有相同角色组合的用户共享同一个画像.
+ * 画像中的集合与对象为共享数据, 不可修改.
+ */
+public class PermissionProfile {
+    /**
+     * 角色指纹
+     */
+    @Getter
+    private final String fingerprint;
+
+    /**
+     * 角色ID
+     */
+    @Getter
+    private final Set<Long> roleIds;
+
+    /**
+     * 有效权限
+     */
+    @Getter
+    private final List<PermissionDo> permissions;
+
+    /**
+     * 权限树, 首次访问时构建
+     */
+    private volatile List<PermissionTreeResponse> tree;
+
+    /**
+     * 序列化后的权限树响应, 首次访问时生成
+     */
+    private volatile SerializedResponse serializedTree;
+
+    public PermissionProfile(String fingerprint, Set<Long> roleIds, List<PermissionDo> permissions) {
+        this.fingerprint = fingerprint;
+        this.roleIds = Set.copyOf(roleIds);
+        this.permissions = List.copyOf(permissions);
+    }
+
+    /**
+     * 查询权限树
+     *
+     * @param treeBuilder 根据有效权限构建权限树
+     */
+    public List<PermissionTreeResponse> getTree(Function<List<PermissionDo>, List<PermissionTreeResponse>> treeBuilder) {
+        List<PermissionTreeResponse> current = tree;
+        if (current == null) {
+            // 并发时可能重复构建, 结果相同, 无需加锁
+            current = List.copyOf(treeBuilder.apply(permissions));
+            tree = current;
+        }
+        return current;
+    }
+
+    /**
+     * 查询序列化后的权限树响应
+     *
+     * @param treeBuilder 根据有效权限构建权限树
+     * @param serializer  序列化权限树
+     */
+    public SerializedResponse getSerializedTree(Function<List<PermissionDo>, List<PermissionTreeResponse>> treeBuilder,
+                                                Function<List<PermissionTreeResponse>, SerializedResponse> serializer) {
+        SerializedResponse current = serializedTree;
+        if (current == null) {
+            current = serializer.apply(getTree(treeBuilder));
+            serializedTree = current;
+        }
+        return current;
+    }
+}
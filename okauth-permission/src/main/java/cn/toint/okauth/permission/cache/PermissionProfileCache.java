@@ -0,0 +1,125 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import cn.toint.okauth.permission.properties.OkAuthPermissionProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.stream.Collectors;
+
+/**
+ * 权限画像缓存
+ * <p>
+ * 以排序后的角色ID集合作为指纹, 缓存每种角色组合的有效权限与权限树.
+ * 内存与计算量只与不同角色组合的数量相关, 与用户数量无关.
+ */
+@Component
+public class PermissionProfileCache implements PermissionCacheEvictListener {
+
+    @Resource
+    private OkAuthPermissionProperties okAuthPermissionProperties;
+
+    @Resource
+    private PermissionLocalCache permissionLocalCache;
+
+    /**
+     * 角色指纹 -> 画像
+     */
+    private Cache<String, PermissionProfile> profileCache;
+
+    @PostConstruct
+    private void init() {
+        OkAuthPermissionProperties.LocalCache localCache = okAuthPermissionProperties.getLocalCache();
+        profileCache = Caffeine.newBuilder()
+                .maximumSize(localCache.getMaximumSize())
+                .expireAfterWrite(localCache.getExpireAfterWrite())
+                .build();
+    }
+
+    /**
+     * 计算角色指纹
+     *
+     * @param roleIds 角色ID
+     * @return 排序去重后以逗号拼接的角色ID
+     */
+    public static String fingerprint(Collection<Long> roleIds) {
+        return roleIds.stream()
+                .distinct()
+                .sorted()
+                .map(String::valueOf)
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * 当前失效版本号
+     */
+    public long generation() {
+        return permissionLocalCache.generation();
+    }
+
+    /**
+     * 查询画像
+     *
+     * @return 未命中返回null
+     */
+    public PermissionProfile get(String fingerprint) {
+        if (!isEnabled()) return null;
+        return profileCache.getIfPresent(fingerprint);
+    }
+
+    /**
+     * 缓存画像
+     * 并发计算同一画像时保留先写入的, 使相同角色组合的用户共享同一个对象
+     *
+     * @param generation 计算前的失效版本号
+     * @return 缓存中的画像
+     */
+    public PermissionProfile put(PermissionProfile profile, long generation) {
+        if (!isEnabled() || permissionLocalCache.generation() != generation) return profile;
+        PermissionProfile existing = profileCache.asMap().putIfAbsent(profile.getFingerprint(), profile);
+        return existing == null ? profile : existing;
+    }
+
+    @Override
+    public void onEvict(Collection<Long> userIds, Collection<Long> roleIds) {
+        // 画像只与角色有关, 清除包含失效角色的画像
+        if (roleIds == null || roleIds.isEmpty()) return;
+        profileCache.asMap()
+                .values()
+                .removeIf(profile -> roleIds.stream().anyMatch(profile.getRoleIds()::contains));
+    }
+
+    @Override
+    public void onEvictAll() {
+        profileCache.invalidateAll();
+    }
+
+    @Override
+    public void onCatalogChange(long version) {
+        // 权限内容变更, 画像中的权限与权限树需要重新生成
+        profileCache.invalidateAll();
+    }
+
+    private boolean isEnabled() {
+        return okAuthPermissionProperties.getLocalCache().isEnabled();
+    }
+}
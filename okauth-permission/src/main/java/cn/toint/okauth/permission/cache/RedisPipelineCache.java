@@ -0,0 +1,153 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import jakarta.annotation.Resource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 权限缓存的 Redis 读写
+ * <p>
+ * 权限相关的缓存键只通过本类读写, 不与 oktool Cache 混用: 键原样使用, 不加前缀, 值为编码后的原始字符串.
+ * 读写与失效使用同一套键和编码, 批量写入与删除通过管道在一次网络往返内完成.
+ */
+@Component
+public class RedisPipelineCache {
+
+    /**
+     * 值与预期一致时才删除
+     */
+    private static final RedisScript<Long> DELETE_IF_EQUALS = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 读取
+     *
+     * @return 不存在返回null
+     */
+    public String get(String key) {
+        return stringRedisTemplate.opsForValue().get(key);
+    }
+
+    /**
+     * 批量读取
+     *
+     * @return 与键一一对应的值, 不存在的键用null占位
+     */
+    public List<String> multiGet(List<String> keys) {
+        if (keys == null || keys.isEmpty()) return new ArrayList<>();
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+        if (values == null) {
+            // 管道或事务中执行时不返回结果, 按未命中处理
+            values = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                values.add(null);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 写入
+     *
+     * @param timeout 过期时间
+     */
+    public void put(String key, String value, Duration timeout) {
+        stringRedisTemplate.opsForValue().set(key, value, timeout);
+    }
+
+    /**
+     * 键不存在时写入
+     *
+     * @param timeout 过期时间
+     * @return 是否写入成功
+     */
+    public boolean putIfAbsent(String key, String value, Duration timeout) {
+        return Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(key, value, timeout));
+    }
+
+    /**
+     * 值与预期一致时删除, 比较与删除在 Redis 中原子执行
+     *
+     * @param value 预期的值
+     * @return 是否删除
+     */
+    public boolean deleteIfEquals(String key, String value) {
+        Long deleted = stringRedisTemplate.execute(DELETE_IF_EQUALS, List.of(key), value);
+        return deleted != null && deleted > 0;
+    }
+
+    /**
+     * 批量写入
+     *
+     * @param values  键值对
+     * @param timeout 过期时间
+     */
+    public void multiPut(Map<String, String> values, Duration timeout) {
+        if (values == null || values.isEmpty()) return;
+
+        long seconds = Math.max(1, timeout.toSeconds());
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringRedisConnection = toStringConnection(connection);
+            values.forEach((key, value) -> stringRedisConnection.setEx(key, seconds, value));
+            return null;
+        });
+    }
+
+    /**
+     * 批量删除
+     * 使用 UNLINK 在 Redis 后台线程释放内存, 按批次拆分后通过管道一次发送
+     *
+     * @param keys      键
+     * @param batchSize 单条命令携带的最大键数量
+     */
+    public void unlink(Collection<String> keys, int batchSize) {
+        if (keys == null || keys.isEmpty()) return;
+
+        List<String> keyList = new ArrayList<>(keys);
+        int size = Math.max(1, batchSize);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringRedisConnection = toStringConnection(connection);
+            for (int from = 0; from < keyList.size(); from += size) {
+                List<String> batch = keyList.subList(from, Math.min(from + size, keyList.size()));
+                stringRedisConnection.unlink(batch.toArray(String[]::new));
+            }
+            return null;
+        });
+    }
+
+    private StringRedisConnection toStringConnection(RedisConnection connection) {
+        // StringRedisTemplate 回调中的连接已包装为 StringRedisConnection
+        return (StringRedisConnection) connection;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import cn.toint.okauth.permission.model.RequestMemoStats;
+import cn.toint.okauth.permission.properties.OkAuthPermissionProperties;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 请求内权限解析复用
+ * <p>
+ * 同一请求中多个 @SaCheckRole/@SaCheckPermission 注解以及 isAdmin 等调用,
+ * 对同一用户只解析一次角色和权限, 结果保存在请求属性中, 请求结束后随之释放.
+ * 非 Web 线程 (定时任务, 异步线程) 中不复用, 每次直接解析.
+ * 请求内修改了权限时, 本请求后续读取到的仍是修改前的结果.
+ */
+@Component
+public class RequestMemo {
+
+    private static final String ATTRIBUTE_PREFIX = RequestMemo.class.getName() + ".";
+
+    @Resource
+    private OkAuthPermissionProperties okAuthPermissionProperties;
+
+    private final LongAdder resolutions = new LongAdder();
+    private final LongAdder saved = new LongAdder();
+
+    /**
+     * 查询当前请求内的解析结果, 不存在时解析并保存
+     *
+     * @param name   解析类型, 不同类型的结果分开保存
+     * @param userId 用户ID
+     * @param loader 解析方法, 不能返回null
+     * @return 解析结果
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String name, Long userId, Supplier<T> loader) {
+        RequestAttributes requestAttributes = okAuthPermissionProperties.isRequestMemo()
+                ? RequestContextHolder.getRequestAttributes()
+                : null;
+        if (requestAttributes == null) {
+            resolutions.increment();
+            return loader.get();
+        }
+
+        String attributeName = ATTRIBUTE_PREFIX + name;
+        Map<Long, Object> memo = (Map<Long, Object>) requestAttributes.getAttribute(attributeName, RequestAttributes.SCOPE_REQUEST);
+        if (memo == null) {
+            memo = new HashMap<>();
+            requestAttributes.setAttribute(attributeName, memo, RequestAttributes.SCOPE_REQUEST);
+        }
+
+        Object value = memo.get(userId);
+        if (value != null) {
+            saved.increment();
+            return (T) value;
+        }
+
+        resolutions.increment();
+        T loadValue = loader.get();
+        memo.put(userId, loadValue);
+        return loadValue;
+    }
+
+    /**
+     * 复用指标
+     */
+    public RequestMemoStats getStats() {
+        RequestMemoStats stats = new RequestMemoStats();
+        stats.setResolutions(resolutions.sum());
+        stats.setSaved(saved.sum());
+        return stats;
+    }
+}
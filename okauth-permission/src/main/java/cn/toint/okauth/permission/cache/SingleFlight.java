@@ -0,0 +1,137 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import cn.toint.okauth.permission.properties.OkAuthPermissionProperties;
+import cn.toint.oktool.util.KeyBuilderUtil;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 缓存加载合并
+ * <p>
+ * 缓存失效后, 同一个键的并发加载只执行一次:
+ * 进程内后到的请求等待先到请求的结果; 跨节点通过 Redis 短租约,
+ * 未拿到租约的节点只由一个线程轮询缓存, 等待持有租约的节点写入, 等待时间有上限, 超过后自行加载.
+ */
+@Slf4j
+@Component
+public class SingleFlight {
+
+    private static final KeyBuilderUtil leaseKeyBuilder = KeyBuilderUtil.of("singleFlight");
+
+    @Resource
+    private RedisPipelineCache redisPipelineCache;
+
+    @Resource
+    private OkAuthPermissionProperties okAuthPermissionProperties;
+
+    /**
+     * 当前节点标识, 写入租约便于排查
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 租约序号, 与节点标识组成每次租约的持有者标识
+     */
+    private final AtomicLong leaseSequence = new AtomicLong();
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlights = new ConcurrentHashMap<>();
+
+    /**
+     * 合并加载
+     *
+     * @param key         缓存键
+     * @param cacheReader 读取缓存, 未命中返回null
+     * @param loader      从数据库加载并写入缓存
+     * @return 加载结果
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T load(String key, Supplier<T> cacheReader, Supplier<T> loader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = inFlights.putIfAbsent(key, future);
+        if (inFlight != null) {
+            // 进程内已有相同的加载, 等待其结果
+            try {
+                return (T) inFlight.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+                throw e;
+            }
+        }
+
+        try {
+            T value = loadWithLease(key, cacheReader, loader);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlights.remove(key, future);
+        }
+    }
+
+    private <T> T loadWithLease(String key, Supplier<T> cacheReader, Supplier<T> loader) {
+        OkAuthPermissionProperties.SingleFlight singleFlight = okAuthPermissionProperties.getSingleFlight();
+        Duration leaseTimeout = singleFlight.getLeaseTimeout();
+        String leaseKey = leaseKeyBuilder.build(key);
+
+        // 拿到租约, 由本节点加载
+        String leaseOwner = nodeId + ":" + leaseSequence.incrementAndGet();
+        if (redisPipelineCache.putIfAbsent(leaseKey, leaseOwner, leaseTimeout)) {
+            try {
+                return loader.get();
+            } finally {
+                // 加载超过租约时长时租约可能已被其他节点获得, 只释放自己持有的租约
+                redisPipelineCache.deleteIfEquals(leaseKey, leaseOwner);
+            }
+        }
+
+        // 其他节点正在加载, 轮询缓存等待其写入, 进程内的其他请求等待本线程的结果
+        Duration waitTimeout = singleFlight.getWaitTimeout().compareTo(leaseTimeout) < 0
+                ? singleFlight.getWaitTimeout()
+                : leaseTimeout;
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                Thread.sleep(Math.max(1, Math.min(singleFlight.getPollInterval().toMillis(), remaining)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            T value = cacheReader.get();
+            if (value != null) return value;
+        }
+
+        // 等待超时, 持有租约的节点可能较慢或已经宕机, 自行加载
+        log.warn("等待其他节点加载缓存超时, 自行加载: {}", key);
+        return loader.get();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import jakarta.annotation.Resource;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Redis 中的版本号与代际号
+ * <p>
+ * 计数器不存在时 (首次使用, 被删除或被淘汰) 以当前毫秒时间戳初始化, 不从 0 重新计数.
+ * 自增频率远低于每毫秒一次, 丢失后的新值总是大于丢失前用过的值, 各节点不会把旧版本号下的数据当作最新.
+ */
+@Component
+public class VersionCounter {
+
+    /**
+     * 不存在时以初始值创建, 再自增
+     */
+    private static final RedisScript<Long> INCREMENT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 0 then redis.call('set', KEYS[1], ARGV[1]) end return redis.call('incr', KEYS[1])",
+            Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 读取当前值, 不存在时先初始化
+     */
+    public long get(String key) {
+        String value = stringRedisTemplate.opsForValue().get(key);
+        if (StringUtils.isBlank(value)) {
+            stringRedisTemplate.opsForValue().setIfAbsent(key, seed());
+            value = stringRedisTemplate.opsForValue().get(key);
+        }
+        return StringUtils.isBlank(value) ? 0 : Long.parseLong(value);
+    }
+
+    /**
+     * 自增, 不存在时先初始化, 创建与自增在 Redis 中原子执行
+     *
+     * @return 自增后的值, 在管道或事务中执行时返回null
+     */
+    public Long increment(String key) {
+        return stringRedisTemplate.execute(INCREMENT, List.of(key), seed());
+    }
+
+    private static String seed() {
+        return String.valueOf(System.currentTimeMillis());
+    }
+}
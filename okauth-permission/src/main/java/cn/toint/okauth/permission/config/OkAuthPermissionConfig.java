@@ -16,23 +16,59 @@
 
 package cn.toint.okauth.permission.config;
 
+import cn.toint.okauth.permission.cache.BinaryPermissionCacheCodec;
+import cn.toint.okauth.permission.cache.JacksonPermissionCacheCodec;
+import cn.toint.okauth.permission.cache.PermissionCacheCodec;
+import cn.toint.okauth.permission.model.CacheCodecEnum;
 import cn.toint.okauth.permission.properties.OkAuthPermissionProperties;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
 /**
  * @author Toint
  * @date 2025/6/29
  */
-@AutoConfiguration
+@AutoConfiguration(after = RedisAutoConfiguration.class)
 @ComponentScan({
         "cn.toint.okauth.permission.service",
-        "cn.toint.okauth.permission.controller"
+        "cn.toint.okauth.permission.controller",
+        "cn.toint.okauth.permission.cache",
+        "cn.toint.okauth.permission.engine",
+        "cn.toint.okauth.permission.snapshot",
+        "cn.toint.okauth.permission.datascope"
 })
 @MapperScan("cn.toint.okauth.permission.mapper")
 @EnableConfigurationProperties({OkAuthPermissionProperties.class})
 public class OkAuthPermissionConfig {
 
+    /**
+     * Redis 消息监听容器
+     * 用于接收跨节点的权限缓存失效通知
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
+    }
+
+    /**
+     * 权限缓存编解码
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public PermissionCacheCodec permissionCacheCodec(OkAuthPermissionProperties okAuthPermissionProperties) {
+        if (okAuthPermissionProperties.getCodec() == CacheCodecEnum.BINARY) {
+            return new BinaryPermissionCacheCodec(okAuthPermissionProperties.getCodecCompressThreshold());
+        }
+        return new JacksonPermissionCacheCodec();
+    }
 }
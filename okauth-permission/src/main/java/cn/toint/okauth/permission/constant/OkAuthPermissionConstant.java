@@ -29,7 +29,10 @@ public class OkAuthPermissionConstant {
     public static final String DATA_SOURCE = "okauth-permission";
 
 
-    public static final KeyBuilderUtil roleMtmPermissionCacheKeyBuilder = KeyBuilderUtil.of("roleMtmPermission");
+    /**
+     * 角色与权限关系缓存, 值为权限ID集合
+     */
+    public static final KeyBuilderUtil roleMtmPermissionCacheKeyBuilder = KeyBuilderUtil.of("roleMtmPermissionId");
     public static final KeyBuilderUtil userMtmRoleCacheKeyBuilder = KeyBuilderUtil.of("userMtmRole");
 
     public static class Role {
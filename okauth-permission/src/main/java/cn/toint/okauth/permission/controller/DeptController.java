@@ -0,0 +1,158 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.controller;
+
+import cn.dev33.satoken.annotation.SaCheckRole;
+import cn.dev33.satoken.stp.StpUtil;
+import cn.toint.okauth.permission.constant.OkAuthPermissionConstant;
+import cn.toint.okauth.permission.datascope.DataScopeManager;
+import cn.toint.okauth.permission.model.DeptBindRoleRequest;
+import cn.toint.okauth.permission.model.DeptBindUserRequest;
+import cn.toint.okauth.permission.model.DeptCreateRequest;
+import cn.toint.okauth.permission.model.DeptDeleteRequest;
+import cn.toint.okauth.permission.model.DeptDo;
+import cn.toint.okauth.permission.model.DeptTreeResponse;
+import cn.toint.okauth.permission.model.DeptUpdateRequest;
+import cn.toint.okauth.permission.service.DeptService;
+import cn.toint.oktool.model.Response;
+import cn.toint.oktool.util.Assert;
+import jakarta.annotation.Resource;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * 部门
+ */
+@RestController
+public class DeptController {
+
+    @Resource
+    private DeptService deptService;
+
+    @Resource
+    private DataScopeManager dataScopeManager;
+
+    /**
+     * 查询部门树
+     */
+    @PostMapping("/dept/listTree")
+    public Response<List<DeptTreeResponse>> listTree() {
+        return Response.success(deptService.listDeptTree());
+    }
+
+    /**
+     * 查询部门
+     */
+    @PostMapping("/dept/getById")
+    public Response<DeptDo> getById(@RequestParam("id") Long id) {
+        return Response.success(deptService.getById(id));
+    }
+
+    /**
+     * 查询部门及其全部子孙部门ID
+     */
+    @PostMapping("/dept/listDescendantId")
+    public Response<List<Long>> listDescendantId(@RequestParam("id") Long id) {
+        return Response.success(deptService.listDescendantIdById(id));
+    }
+
+    /**
+     * 添加部门
+     */
+    @PostMapping("/dept/create")
+    @SaCheckRole(OkAuthPermissionConstant.Role.ADMIN)
+    public Response<Void> create(@RequestBody DeptCreateRequest request) {
+        deptService.create(request);
+        return Response.success();
+    }
+
+    /**
+     * 修改部门
+     */
+    @PostMapping("/dept/update")
+    @SaCheckRole(OkAuthPermissionConstant.Role.ADMIN)
+    public Response<Void> update(@RequestBody DeptUpdateRequest request) {
+        deptService.update(request);
+        return Response.success();
+    }
+
+    /**
+     * 删除部门
+     */
+    @PostMapping("/dept/delete")
+    @SaCheckRole(OkAuthPermissionConstant.Role.ADMIN)
+    public Response<Void> delete(@RequestBody DeptDeleteRequest request) {
+        deptService.delete(request.getIds());
+        return Response.success();
+    }
+
+    /**
+     * 设置用户所属部门
+     */
+    @PostMapping("/dept/bindUser")
+    @SaCheckRole(OkAuthPermissionConstant.Role.ADMIN)
+    public Response<Void> bindUser(@RequestBody DeptBindUserRequest request) {
+        Assert.validate(request);
+        deptService.bindUser(request.getUserId(), request.getDeptIds());
+        return Response.success();
+    }
+
+    /**
+     * 设置部门绑定的角色
+     * 部门及其全部子孙部门下的用户继承这些角色
+     */
+    @PostMapping("/dept/bindRole")
+    @SaCheckRole(OkAuthPermissionConstant.Role.ADMIN)
+    public Response<Void> bindRole(@RequestBody DeptBindRoleRequest request) {
+        Assert.validate(request);
+        deptService.bindRole(request.getDeptId(), request.getRoleIds());
+        return Response.success();
+    }
+
+    /**
+     * 查询部门直接绑定的角色ID
+     */
+    @PostMapping("/dept/listRoleId")
+    @SaCheckRole(OkAuthPermissionConstant.Role.ADMIN)
+    public Response<List<Long>> listRoleId(@RequestParam("id") Long id) {
+        return Response.success(deptService.listRoleIdById(id));
+    }
+
+    /**
+     * 查询当前用户可见的部门ID
+     * 所属部门及其全部子孙部门
+     */
+    @PostMapping("/dept/listVisibleId")
+    public Response<List<Long>> listVisibleId() {
+        long userId = StpUtil.getLoginIdAsLong();
+        return Response.success(dataScopeManager.listVisibleDeptId(userId));
+    }
+
+    /**
+     * 根据父部门重建闭包表
+     */
+    @PostMapping("/dept/rebuildClosure")
+    @SaCheckRole(OkAuthPermissionConstant.Role.ADMIN)
+    public Response<Void> rebuildClosure() {
+        deptService.rebuildClosure();
+        return Response.success();
+    }
+}
@@ -23,16 +23,24 @@ import cn.toint.okauth.permission.model.DictCreateRequest;
 import cn.toint.okauth.permission.model.DictDeleteRequest;
 import cn.toint.okauth.permission.model.DictDo;
 import cn.toint.okauth.permission.model.DictUpdateRequest;
+import cn.toint.okauth.permission.model.SerializedResponse;
 import cn.toint.okauth.permission.service.DictService;
 import cn.toint.oktool.model.Response;
 import cn.toint.oktool.spring.boot.model.PageRequest;
 import com.mybatisflex.core.paginate.Page;
 import jakarta.annotation.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -44,11 +52,34 @@ public class DictController {
     @Resource
     private DictService dictService;
 
-    @PostMapping("/dict/listAll")
+    /**
+     * 查询全部字典
+     * 直接输出缓存的序列化结果, 支持 gzip 与 ETag (If-None-Match 命中返回304).
+     * 版本号为内容摘要, 携带与当前内容一致的版本号时, 该地址的内容不会再变化, 响应可被长期缓存; 否则每次需使用 ETag 协商.
+     *
+     * @param version 客户端已知的字典版本号, 见 /dict/version
+     */
+    @RequestMapping(value = "/dict/listAll", method = {RequestMethod.GET, RequestMethod.POST})
     @SaIgnore
-    public Response<List<DictDo>> listAll() {
-        List<DictDo> dictDos = dictService.listAll();
-        return Response.success(dictDos);
+    public ResponseEntity<byte[]> listAll(@RequestParam(value = "version", required = false) String version,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        SerializedResponse serializedResponse = dictService.getSerializedAll();
+        // 只有版本号与实际输出的内容摘要一致时才长期缓存, 版本号不会被其他内容复用
+        CacheControl cacheControl = serializedResponse.getDigest().equals(version)
+                ? CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable()
+                : CacheControl.noCache();
+        return serializedResponse.toResponseEntity(ifNoneMatch, acceptEncoding, cacheControl);
+    }
+
+    /**
+     * 查询字典版本号
+     * 即全部字典的内容摘要, 客户端以此作为 /dict/listAll 的 version 参数
+     */
+    @RequestMapping(value = "/dict/version", method = {RequestMethod.GET, RequestMethod.POST})
+    @SaIgnore
+    public Response<String> version() {
+        return Response.success(dictService.version());
     }
 
     @PostMapping("/dict/getById")
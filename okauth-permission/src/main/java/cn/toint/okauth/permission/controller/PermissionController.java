@@ -16,19 +16,32 @@
 
 package cn.toint.okauth.permission.controller;
 
+import cn.dev33.satoken.annotation.SaCheckPermission;
 import cn.dev33.satoken.annotation.SaCheckRole;
 import cn.dev33.satoken.stp.StpUtil;
+import cn.toint.okauth.permission.cache.PermissionCacheInvalidator;
+import cn.toint.okauth.permission.cache.RequestMemo;
 import cn.toint.okauth.permission.constant.OkAuthPermissionConstant;
+import cn.toint.okauth.permission.engine.PermissionEngine;
 import cn.toint.okauth.permission.model.*;
+import cn.toint.okauth.permission.properties.OkAuthPermissionProperties;
 import cn.toint.okauth.permission.service.PermissionService;
 import cn.toint.oktool.model.Response;
 import cn.toint.oktool.util.Assert;
 import jakarta.annotation.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Base64;
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -43,14 +56,51 @@ public class PermissionController {
     @Resource
     private PermissionService permissionService;
 
+    @Resource
+    private PermissionCacheInvalidator permissionCacheInvalidator;
+
+    @Resource
+    private RequestMemo requestMemo;
+
+    @Resource
+    private PermissionEngine permissionEngine;
+
+    @Resource
+    private OkAuthPermissionProperties okAuthPermissionProperties;
+
     /**
      * 查询权限树
+     * 直接输出缓存的序列化结果, 支持 gzip 与 ETag (If-None-Match 命中返回304).
+     * 权限树因用户而异, 禁止代理等共享缓存保存
      */
-    @PostMapping("/permission/listTree")
-    public Response<List<PermissionTreeResponse>> listTree() {
+    @RequestMapping(value = "/permission/listTree", method = {RequestMethod.GET, RequestMethod.POST})
+    public ResponseEntity<byte[]> listTree(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         long userId = StpUtil.getLoginIdAsLong();
-        List<PermissionTreeResponse> permissionTreeResponse = permissionService.listTreeByUserId(userId);
-        return Response.success(permissionTreeResponse);
+        SerializedResponse serializedResponse = permissionService.getSerializedTreeByUserId(userId);
+        return serializedResponse.toResponseEntity(ifNoneMatch, acceptEncoding, CacheControl.noCache().cachePrivate());
+    }
+
+    /**
+     * 批量校验权限
+     * 供网关等下游服务使用, 一次请求校验多组 (用户ID, 权限码), 结果以位图返回
+     */
+    @PostMapping("/permission/checkBatch")
+    @SaCheckPermission(value = "permission:checkBatch", orRole = OkAuthPermissionConstant.Role.ADMIN)
+    public Response<PermissionCheckBatchResponse> checkBatch(@RequestBody PermissionCheckBatchRequest request) {
+        Assert.notNull(request, "请求参数不能为空");
+        Assert.validate(request);
+        int size = request.getUserIds().size();
+        Assert.isTrue(size == request.getPermissions().size(), "用户ID与权限码数量不一致");
+        int maxSize = okAuthPermissionProperties.getCheckBatchMaxSize();
+        Assert.isTrue(size <= maxSize, "单次最多校验{}项", maxSize);
+
+        BitSet result = permissionEngine.hasPermissions(request.getUserIds(), request.getPermissions());
+        PermissionCheckBatchResponse response = new PermissionCheckBatchResponse();
+        response.setSize(size);
+        response.setGranted(result.cardinality());
+        response.setBitmap(Base64.getEncoder().encodeToString(result.toByteArray()));
+        return Response.success(response);
     }
 
     /**
@@ -121,4 +171,35 @@ public class PermissionController {
 
         return Response.success(response);
     }
+
+    /**
+     * 查询拥有权限的角色和用户
+     */
+    @PostMapping("/permission/listHolder")
+    @SaCheckRole(OkAuthPermissionConstant.Role.ADMIN)
+    public Response<PermissionHolderResponse> listHolder(@RequestParam("permissionId") Long permissionId) {
+        PermissionHolderResponse response = new PermissionHolderResponse();
+        response.setPermissionId(permissionId);
+        response.setRoleIds(permissionService.listRoleIdByPermissionId(permissionId));
+        response.setUserIds(permissionService.listUserIdByPermissionId(permissionId));
+        return Response.success(response);
+    }
+
+    /**
+     * 查询缓存失效流水线指标
+     */
+    @PostMapping("/permission/cacheStats")
+    @SaCheckRole(OkAuthPermissionConstant.Role.ADMIN)
+    public Response<PermissionCacheInvalidatorStats> cacheStats() {
+        return Response.success(permissionCacheInvalidator.getStats());
+    }
+
+    /**
+     * 查询请求内权限解析复用指标
+     */
+    @PostMapping("/permission/requestMemoStats")
+    @SaCheckRole(OkAuthPermissionConstant.Role.ADMIN)
+    public Response<RequestMemoStats> requestMemoStats() {
+        return Response.success(requestMemo.getStats());
+    }
 }
@@ -97,10 +97,20 @@ public class RoleController {
     }
 
     /**
-     * 根据角色ID查询对应用户ID集合
+     * 根据角色ID查询直接绑定的用户ID集合, 与 /role/bind 的全量覆盖对应
      */
     @PostMapping("/role/listUserId")
     @SaCheckRole(OkAuthPermissionConstant.Role.ADMIN)
+    public Response<List<Long>> listBoundUserIdByRoleId(@RequestParam("roleId") Long roleId) {
+        List<Long> userIds = roleService.listBoundUserIdByRoleId(roleId);
+        return Response.success(userIds);
+    }
+
+    /**
+     * 根据角色ID查询拥有该角色的用户ID集合, 包含通过部门继承的用户
+     */
+    @PostMapping("/role/listHolder")
+    @SaCheckRole(OkAuthPermissionConstant.Role.ADMIN)
     public Response<List<Long>> listUserIdByRoleId(@RequestParam("roleId") Long roleId) {
         List<Long> userIds = roleService.listUserIdByRoleId(roleId);
         return Response.success(userIds);
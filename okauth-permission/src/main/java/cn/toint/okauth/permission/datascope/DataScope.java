@@ -0,0 +1,40 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.datascope;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 数据权限
+ * <p>
+ * 标注在 Mapper 上, 开启后该 Mapper 对应表的查询, 按条件修改和删除,
+ * 自动追加 部门列 in (当前用户可见的部门ID), 可见部门为用户所属部门及其全部子孙部门.
+ * 按主键查询, 修改和删除同样追加. admin 不受限制, 非 Web 线程中不追加条件, 未登录的 Web 请求不返回任何数据.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface DataScope {
+    /**
+     * 部门ID列名
+     */
+    String column() default "dept_id";
+}
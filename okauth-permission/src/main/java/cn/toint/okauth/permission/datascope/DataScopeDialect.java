@@ -0,0 +1,54 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.datascope;
+
+import com.mybatisflex.core.dialect.OperateType;
+import com.mybatisflex.core.dialect.impl.CommonsDialectImpl;
+import com.mybatisflex.core.query.QueryWrapper;
+import com.mybatisflex.core.table.TableInfo;
+
+/**
+ * 追加数据权限条件的方言
+ * <p>
+ * 条件查询经 {@link QueryWrapper} 追加, 按主键查询, 修改和删除在生成的 SQL 末尾追加.
+ */
+class DataScopeDialect extends CommonsDialectImpl {
+
+    private final DataScopeManager dataScopeManager;
+
+    DataScopeDialect(DataScopeManager dataScopeManager) {
+        this.dataScopeManager = dataScopeManager;
+    }
+
+    @Override
+    public void prepareAuth(QueryWrapper queryWrapper, OperateType operateType) {
+        dataScopeManager.apply(queryWrapper);
+        super.prepareAuth(queryWrapper, operateType);
+    }
+
+    @Override
+    public void prepareAuth(String schema, String tableName, StringBuilder sql, OperateType operateType) {
+        dataScopeManager.apply(tableName, sql, this);
+        super.prepareAuth(schema, tableName, sql, operateType);
+    }
+
+    @Override
+    public void prepareAuth(TableInfo tableInfo, StringBuilder sql, OperateType operateType) {
+        // 统一经表名重载追加, 避免默认实现转发时重复追加
+        prepareAuth(tableInfo.getSchema(), tableInfo.getTableName(), sql, operateType);
+    }
+}
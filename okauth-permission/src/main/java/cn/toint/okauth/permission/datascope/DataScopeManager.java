@@ -0,0 +1,263 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.datascope;
+
+import cn.dev33.satoken.stp.StpUtil;
+import cn.toint.okauth.permission.cache.DeptCatalog;
+import cn.toint.okauth.permission.cache.PermissionCacheEvictListener;
+import cn.toint.okauth.permission.cache.PermissionLocalCache;
+import cn.toint.okauth.permission.properties.OkAuthPermissionProperties;
+import cn.toint.okauth.permission.service.DeptService;
+import cn.toint.okauth.permission.service.RoleService;
+import cn.toint.oktool.util.Assert;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mybatisflex.core.FlexGlobalConfig;
+import com.mybatisflex.core.dialect.DbType;
+import com.mybatisflex.core.dialect.DialectFactory;
+import com.mybatisflex.core.dialect.IDialect;
+import com.mybatisflex.core.query.CPI;
+import com.mybatisflex.core.query.QueryColumn;
+import com.mybatisflex.core.query.QueryTable;
+import com.mybatisflex.core.query.QueryWrapper;
+import com.mybatisflex.core.table.TableInfo;
+import com.mybatisflex.core.table.TableInfoFactory;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 数据权限
+ * <p>
+ * 启动后扫描标注了 {@link DataScope} 的 Mapper, 按 MyBatis-Flex 配置的数据库类型注册追加条件的方言, 不支持的类型启动失败.
+ * 用户可见的部门ID按 用户 + 部门目录版本号 缓存, 每个版本只计算一次, 不随每次查询重新计算.
+ * 部门变更后部门目录版本号自增, 全部缓存随之失效; 用户所属部门变更只失效该用户,
+ * 通过权限本地缓存的失效频道同步到各节点, 因此本地缓存未开启时不缓存.
+ */
+@Slf4j
+@Component
+public class DataScopeManager implements SmartInitializingSingleton, PermissionCacheEvictListener {
+
+    /**
+     * 为true时当前线程不追加数据权限条件
+     */
+    private static final ThreadLocal<Boolean> IGNORE = new ThreadLocal<>();
+
+    /**
+     * 支持的数据库类型, 与 {@link DataScopeDialect} 继承的默认方言一致
+     */
+    private static final Set<DbType> SUPPORTED_DB_TYPES = Set.of(DbType.MYSQL, DbType.MARIADB);
+
+    @Resource
+    private OkAuthPermissionProperties okAuthPermissionProperties;
+
+    @Resource
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Resource
+    private DeptCatalog deptCatalog;
+
+    @Resource
+    private DeptService deptService;
+
+    @Resource
+    private RoleService roleService;
+
+    @Resource
+    private PermissionLocalCache permissionLocalCache;
+
+    /**
+     * 表名 -> 部门ID列名
+     */
+    private volatile Map<String, String> tableColumns = Map.of();
+
+    /**
+     * 用户ID -> 可见部门, 本地缓存未开启时为null
+     */
+    private volatile Cache<Long, Scope> scopeCache;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!okAuthPermissionProperties.getDataScope().isEnabled()) return;
+
+        DbType dbType = FlexGlobalConfig.getDefaultConfig().getDbType();
+        Assert.isTrue(dbType == null || SUPPORTED_DB_TYPES.contains(dbType),
+                "数据权限暂不支持数据库类型[{}], 支持: {}", dbType, SUPPORTED_DB_TYPES);
+
+        OkAuthPermissionProperties.LocalCache localCache = okAuthPermissionProperties.getLocalCache();
+        if (localCache.isEnabled()) {
+            scopeCache = Caffeine.newBuilder()
+                    .maximumSize(localCache.getMaximumSize())
+                    .expireAfterWrite(localCache.getExpireAfterWrite())
+                    .build();
+        }
+
+        Map<String, String> columns = new HashMap<>();
+        for (Class<?> mapperClass : sqlSessionFactory.getConfiguration().getMapperRegistry().getMappers()) {
+            DataScope dataScope = AnnotationUtils.findAnnotation(mapperClass, DataScope.class);
+            if (dataScope == null) continue;
+            TableInfo tableInfo = TableInfoFactory.ofMapperClass(mapperClass);
+            Assert.notNull(tableInfo, "Mapper[{}]未找到对应的表", mapperClass.getName());
+            columns.put(tableInfo.getTableName(), dataScope.column());
+        }
+        tableColumns = Map.copyOf(columns);
+
+        // 未配置时按 MyBatis-Flex 的默认类型 MySQL 注册
+        DialectFactory.registerDialect(dbType == null ? DbType.MYSQL : dbType, new DataScopeDialect(this));
+        log.info("数据权限已开启, 数据库类型: {}, 表: {}", dbType, tableColumns);
+    }
+
+    /**
+     * 在当前线程中忽略数据权限执行
+     */
+    public static <T> T ignore(Supplier<T> supplier) {
+        Boolean previous = IGNORE.get();
+        IGNORE.set(true);
+        try {
+            return supplier.get();
+        } finally {
+            if (previous == null) {
+                IGNORE.remove();
+            } else {
+                IGNORE.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 查询用户可见的部门ID
+     * 用户所属部门及其全部子孙部门, admin 也只返回所属部门, 是否受限由调用方判断
+     *
+     * @return 升序的部门ID, 不可修改
+     */
+    public List<Long> listVisibleDeptId(Long userId) {
+        Assert.notNull(userId, "用户ID不能为空");
+        Cache<Long, Scope> scopeCache = this.scopeCache;
+        long version = deptCatalog.version();
+        long generation = permissionLocalCache.generation();
+        if (scopeCache != null) {
+            Scope scope = scopeCache.getIfPresent(userId);
+            if (scope != null && scope.version() == version) return scope.deptIds();
+        }
+
+        long[] userDeptIds = ignore(() -> deptService.listIdByUserId(userId))
+                .stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+        List<Long> deptIds = Arrays.stream(deptCatalog.getDescendantIds(userDeptIds)).boxed().toList();
+        // 计算期间发生失效时不写入, 避免旧的所属部门覆盖失效
+        if (scopeCache != null && permissionLocalCache.generation() == generation) {
+            scopeCache.put(userId, new Scope(version, deptIds));
+        }
+        return deptIds;
+    }
+
+    @Override
+    public void onEvict(Collection<Long> userIds, Collection<Long> roleIds) {
+        Cache<Long, Scope> scopeCache = this.scopeCache;
+        if (scopeCache != null && userIds != null) scopeCache.invalidateAll(userIds);
+    }
+
+    @Override
+    public void onEvictAll() {
+        Cache<Long, Scope> scopeCache = this.scopeCache;
+        if (scopeCache != null) scopeCache.invalidateAll();
+    }
+
+    /**
+     * 为查询中开启了数据权限的表追加条件
+     */
+    void apply(QueryWrapper queryWrapper) {
+        if (tableColumns.isEmpty() || Boolean.TRUE.equals(IGNORE.get())) return;
+        List<QueryTable> queryTables = CPI.getQueryTables(queryWrapper);
+        if (queryTables == null || queryTables.isEmpty()) return;
+
+        List<Long> deptIds = null;
+        boolean resolved = false;
+        for (QueryTable queryTable : queryTables) {
+            String column = tableColumns.get(queryTable.getName());
+            if (column == null) continue;
+
+            // 涉及开启了数据权限的表时才解析当前用户
+            if (!resolved) {
+                deptIds = currentDeptIds();
+                resolved = true;
+            }
+            if (deptIds == null) return;
+
+            if (deptIds.isEmpty()) {
+                // 没有可见部门时不返回任何数据
+                queryWrapper.and("1 = 0");
+                return;
+            }
+            queryWrapper.and(new QueryColumn(queryTable, column).in(deptIds));
+        }
+    }
+
+    /**
+     * 为按主键查询, 修改和删除生成的 SQL 追加条件, 生成的 SQL 已以主键条件结尾
+     */
+    void apply(String tableName, StringBuilder sql, IDialect dialect) {
+        if (tableColumns.isEmpty() || Boolean.TRUE.equals(IGNORE.get())) return;
+        String column = tableColumns.get(tableName);
+        if (column == null) return;
+
+        List<Long> deptIds = currentDeptIds();
+        if (deptIds == null) return;
+        if (deptIds.isEmpty()) {
+            sql.append(" AND 1 = 0");
+            return;
+        }
+        sql.append(" AND ").append(dialect.wrap(column)).append(" IN (")
+                .append(deptIds.stream().map(String::valueOf).collect(Collectors.joining(", ")))
+                .append(')');
+    }
+
+    /**
+     * 当前用户可见的部门
+     *
+     * @return 非 Web 线程或 admin 返回null, 不追加条件; 未登录的 Web 请求返回空集合, 不返回任何数据
+     */
+    private List<Long> currentDeptIds() {
+        if (RequestContextHolder.getRequestAttributes() == null) return null;
+        Object loginId = ignore(StpUtil::getLoginIdDefaultNull);
+        if (loginId == null) return List.of();
+        Long userId = loginId instanceof Long id ? id : Long.valueOf(loginId.toString());
+        if (ignore(() -> roleService.isAdmin(userId))) return null;
+        return listVisibleDeptId(userId);
+    }
+
+    /**
+     * @param version 计算时的部门目录版本号
+     * @param deptIds 升序的可见部门ID
+     */
+    private record Scope(long version, List<Long> deptIds) {
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.engine;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 编码序号字典
+ * <p>
+ * 为每个编码分配稠密的整数序号, 只增不减. 序号在进程内保持稳定,
+ * 权限变更时无需重排, 已编译的位图可以继续使用.
+ */
+public class CodeOrdinals {
+    private final ConcurrentHashMap<String, Integer> ordinals = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * 获取编码序号, 不存在时分配
+     */
+    public int ordinalOf(String code) {
+        return ordinals.computeIfAbsent(code, k -> next.getAndIncrement());
+    }
+
+    /**
+     * 查找编码序号
+     *
+     * @return 不存在返回-1
+     */
+    public int find(String code) {
+        if (code == null) return -1;
+        Integer ordinal = ordinals.get(code);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * 已分配的序号数量
+     */
+    public int size() {
+        return next.get();
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.engine;
+
+import cn.dev33.satoken.util.SaFoxUtil;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Supplier;
+
+/**
+ * 已编译的编码集合
+ * <p>
+ * 以位图保存编码序号, 判断是否拥有某个编码只需一次字典查找和一次位运算, 不产生任何对象.
+ * 整段通配符 (例如 user:*) 编译为字典树, 匹配耗时与通配符编码的数量无关.
+ * 同时实现 {@link List} 接口, 可直接作为 Sa-Token 的权限/角色列表返回.
+ */
+public final class CompiledCodeList extends AbstractList<String> implements RandomAccess {
+    private final CodeOrdinals ordinals;
+    private final long[] bits;
+
+    /**
+     * 编码, 超级管理员集合首次作为列表读取时才加载
+     */
+    private volatile String[] codes;
+
+    /**
+     * 超级管理员集合: 匹配任意编码, 不需要加载编码即可校验
+     */
+    private final boolean all;
+
+    /**
+     * 超级管理员集合的编码加载方式
+     */
+    private final Supplier<? extends Collection<String>> loader;
+
+    /**
+     * 整段通配符编码, 精确匹配失败后按段匹配
+     */
+    private final WildcardTrie wildcards;
+
+    /**
+     * 段内含通配符的编码, 无法编译为字典树, 最后按 Sa-Token 规则模糊匹配
+     */
+    private final String[] patterns;
+
+    private CompiledCodeList(CodeOrdinals ordinals, String[] codes, long[] bits, WildcardTrie wildcards, String[] patterns,
+                             boolean all, Supplier<? extends Collection<String>> loader) {
+        this.ordinals = ordinals;
+        this.codes = codes;
+        this.bits = bits;
+        this.wildcards = wildcards;
+        this.patterns = patterns;
+        this.all = all;
+        this.loader = loader;
+    }
+
+    /**
+     * 超级管理员的编码集合
+     * 任意编码都匹配, 校验时不加载任何编码, 只有作为列表读取时才通过 loader 加载全部编码
+     *
+     * @param ordinals 序号字典
+     * @param loader   加载全部编码
+     */
+    public static CompiledCodeList all(CodeOrdinals ordinals, Supplier<? extends Collection<String>> loader) {
+        return new CompiledCodeList(ordinals, null, new long[0], new WildcardTrie(), new String[0], true, loader);
+    }
+
+    /**
+     * 编译编码集合
+     *
+     * @param ordinals 序号字典
+     * @param codes    编码, 空值和重复值会被忽略
+     */
+    public static CompiledCodeList compile(CodeOrdinals ordinals, Collection<String> codes) {
+        LinkedHashSet<String> distinctCodes = new LinkedHashSet<>();
+        for (String code : codes) {
+            if (code != null && !code.isBlank()) {
+                distinctCodes.add(code);
+            }
+        }
+
+        int[] codeOrdinals = new int[distinctCodes.size()];
+        int maxOrdinal = -1;
+        int i = 0;
+        WildcardTrie wildcards = new WildcardTrie();
+        List<String> patterns = new ArrayList<>();
+        for (String code : distinctCodes) {
+            int ordinal = ordinals.ordinalOf(code);
+            codeOrdinals[i++] = ordinal;
+            maxOrdinal = Math.max(maxOrdinal, ordinal);
+            if (WildcardTrie.accepts(code)) {
+                wildcards.add(code);
+            } else if (code.indexOf('*') >= 0) {
+                patterns.add(code);
+            }
+        }
+
+        long[] bits = new long[(maxOrdinal >> 6) + 1];
+        for (int ordinal : codeOrdinals) {
+            bits[ordinal >> 6] |= 1L << ordinal;
+        }
+        return new CompiledCodeList(ordinals, distinctCodes.toArray(String[]::new), bits, wildcards, patterns.toArray(String[]::new),
+                false, null);
+    }
+
+    /**
+     * 是否拥有编码, 支持通配符
+     */
+    public boolean matches(String code) {
+        return matches(ordinals.find(code), code);
+    }
+
+    /**
+     * 是否拥有编码, 支持通配符
+     * 编码序号已预先计算时使用, 精确匹配只需一次位运算
+     *
+     * @param ordinal 编码在同一序号字典中的序号
+     * @param code    编码
+     */
+    public boolean matches(int ordinal, String code) {
+        if (all) return code != null;
+        if (test(ordinal)) return true;
+        if (wildcards.matches(code)) return true;
+        for (String pattern : patterns) {
+            if (SaFoxUtil.vagueMatch(pattern, code)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (all) return o instanceof String;
+        return o instanceof String code && test(ordinals.find(code));
+    }
+
+    /**
+     * 是否为超级管理员集合
+     */
+    public boolean isAll() {
+        return all;
+    }
+
+    @Override
+    public String get(int index) {
+        return codes()[index];
+    }
+
+    @Override
+    public int size() {
+        return codes().length;
+    }
+
+    private String[] codes() {
+        String[] current = codes;
+        if (current == null) {
+            // 并发时可能重复加载, 结果相同, 无需加锁
+            current = loader.get()
+                    .stream()
+                    .filter(code -> code != null && !code.isBlank())
+                    .distinct()
+                    .toArray(String[]::new);
+            codes = current;
+        }
+        return current;
+    }
+
+    private boolean test(int ordinal) {
+        if (ordinal < 0) return false;
+        int word = ordinal >> 6;
+        return word < bits.length && (bits[word] & (1L << ordinal)) != 0;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.engine;
+
+import cn.dev33.satoken.strategy.SaStrategy;
+import cn.toint.okauth.permission.cache.PermissionCacheEvictListener;
+import cn.toint.okauth.permission.cache.PermissionLocalCache;
+import cn.toint.okauth.permission.cache.RequestMemo;
+import cn.toint.okauth.permission.model.PermissionDo;
+import cn.toint.okauth.permission.model.RoleDo;
+import cn.toint.okauth.permission.properties.OkAuthPermissionProperties;
+import cn.toint.okauth.permission.service.PermissionService;
+import cn.toint.okauth.permission.service.RoleService;
+import cn.toint.oktool.util.Assert;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 权限编译引擎
+ * <p>
+ * 每个角色码/权限码分配稠密序号, 用户的角色和权限编译为位图.
+ * Sa-Token 校验时只做位运算, 不再线性扫描权限列表.
+ * 权限变更时只清除受影响用户的编译结果, 下次校验时按需重新编译.
+ */
+@Slf4j
+@Component
+public class PermissionEngine implements PermissionCacheEvictListener {
+
+    @Resource
+    private RoleService roleService;
+
+    @Resource
+    private PermissionService permissionService;
+
+    @Resource
+    private PermissionLocalCache permissionLocalCache;
+
+    @Resource
+    private RequestMemo requestMemo;
+
+    @Resource
+    private OkAuthPermissionProperties okAuthPermissionProperties;
+
+    private final CodeOrdinals roleOrdinals = new CodeOrdinals();
+    private final CodeOrdinals permissionOrdinals = new CodeOrdinals();
+
+    /**
+     * 用户ID -> 编译结果
+     */
+    private Cache<Long, Grant> grantCache;
+
+    /**
+     * 权限画像中的权限集合 -> 编译结果
+     * 弱引用键按对象身份比较, 画像失效被回收后编译结果随之释放
+     */
+    private Cache<List<PermissionDo>, CompiledCodeList> profilePermissionCache;
+
+    @PostConstruct
+    private void init() {
+        OkAuthPermissionProperties.LocalCache localCache = okAuthPermissionProperties.getLocalCache();
+        grantCache = Caffeine.newBuilder()
+                .maximumSize(localCache.getMaximumSize())
+                .expireAfterWrite(localCache.getExpireAfterWrite())
+                .build();
+        profilePermissionCache = Caffeine.newBuilder()
+                .weakKeys()
+                .build();
+
+        // 已编译的集合走位图判断, 其他集合保持 Sa-Token 默认行为
+        var hasElement = SaStrategy.instance.hasElement;
+        SaStrategy.instance.hasElement = (list, element) -> {
+            if (list instanceof CompiledCodeList compiledCodeList) {
+                return compiledCodeList.matches(element);
+            }
+            return hasElement.apply(list, element);
+        };
+        log.info("权限编译引擎初始化成功");
+    }
+
+    /**
+     * 用户拥有的角色码
+     */
+    public CompiledCodeList getRoles(Long userId) {
+        return getGrant(userId).roles();
+    }
+
+    /**
+     * 用户拥有的权限码
+     */
+    public CompiledCodeList getPermissions(Long userId) {
+        return getGrant(userId).permissions();
+    }
+
+    public boolean hasRole(Long userId, String role) {
+        return getRoles(userId).matches(role);
+    }
+
+    public boolean hasPermission(Long userId, String permission) {
+        return getPermissions(userId).matches(permission);
+    }
+
+    /**
+     * 角色码序号, 用于启动时预编译校验规则
+     */
+    public int roleOrdinal(String role) {
+        return roleOrdinals.ordinalOf(role);
+    }
+
+    /**
+     * 权限码序号, 用于启动时预编译校验规则
+     */
+    public int permissionOrdinal(String permission) {
+        return permissionOrdinals.ordinalOf(permission);
+    }
+
+    /**
+     * @param ordinal {@link #roleOrdinal(String)} 返回的序号
+     */
+    public boolean hasRole(Long userId, int ordinal, String role) {
+        return getRoles(userId).matches(ordinal, role);
+    }
+
+    /**
+     * @param ordinal {@link #permissionOrdinal(String)} 返回的序号
+     */
+    public boolean hasPermission(Long userId, int ordinal, String permission) {
+        return getPermissions(userId).matches(ordinal, permission);
+    }
+
+    /**
+     * 批量校验权限
+     * 相同用户只解析一次, 相同权限码只查找一次序号, 不存在的权限码不会分配序号.
+     * 未编译的用户批量读取角色后在本次调用内编译, 不写入编译结果缓存, 避免挤出在线用户
+     *
+     * @param userIds     用户ID
+     * @param permissions 权限码, 与用户ID按下标一一对应
+     * @return 第 i 位表示 userIds[i] 是否拥有 permissions[i]
+     */
+    public BitSet hasPermissions(List<Long> userIds, List<String> permissions) {
+        Assert.isTrue(userIds.size() == permissions.size(), "用户ID与权限码数量不一致");
+
+        // 1. 已编译的用户直接复用, 其余用户的角色一次批量读取
+        Map<Long, CompiledCodeList> userPermissions = new HashMap<>();
+        Set<Long> uncompiledUserIds = new HashSet<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            Long userId = userIds.get(i);
+            if (userId == null || permissions.get(i) == null || userPermissions.containsKey(userId)) continue;
+            Grant grant = grantCache.getIfPresent(userId);
+            if (grant != null) {
+                userPermissions.put(userId, grant.permissions());
+            } else {
+                uncompiledUserIds.add(userId);
+            }
+        }
+        if (!uncompiledUserIds.isEmpty()) {
+            roleService.listEffectiveByUserIds(uncompiledUserIds)
+                    .forEach((userId, roleDos) -> userPermissions.put(userId, compilePermissions(userId, roleDos)));
+        }
+
+        // 2. 逐条校验
+        BitSet result = new BitSet(userIds.size());
+        Map<String, Integer> ordinals = new HashMap<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            Long userId = userIds.get(i);
+            String permission = permissions.get(i);
+            if (userId == null || permission == null) continue;
+
+            CompiledCodeList compiledCodeList = userPermissions.get(userId);
+            int ordinal = ordinals.computeIfAbsent(permission, permissionOrdinals::find);
+            if (compiledCodeList.matches(ordinal, permission)) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void onEvict(Collection<Long> userIds, Collection<Long> roleIds) {
+        // 角色变更时, 受影响的用户已由失效方展开到 userIds 中
+        if (userIds != null) grantCache.invalidateAll(userIds);
+    }
+
+    @Override
+    public void onEvictAll() {
+        grantCache.invalidateAll();
+    }
+
+    @Override
+    public void onCatalogChange(long version) {
+        // 权限码可能被修改, 重新编译
+        grantCache.invalidateAll();
+        profilePermissionCache.invalidateAll();
+    }
+
+    private Grant getGrant(Long userId) {
+        Assert.notNull(userId, "用户ID不能为空");
+        // 同一请求内的多次校验只解析一次
+        return requestMemo.get("grant", userId, () -> loadGrant(userId));
+    }
+
+    private Grant loadGrant(Long userId) {
+        Grant grant = grantCache.getIfPresent(userId);
+        if (grant != null) return grant;
+
+        long generation = permissionLocalCache.generation();
+        grant = compile(userId);
+        if (okAuthPermissionProperties.getLocalCache().isEnabled() && permissionLocalCache.generation() == generation) {
+            grantCache.put(userId, grant);
+        }
+        return grant;
+    }
+
+    private Grant compile(Long userId) {
+        List<RoleDo> roleDos = roleService.listEffectiveByUserId(userId);
+        // 超级管理员: 任意校验都通过, 不加载全部角色和权限, 只有读取列表时才加载
+        CompiledCodeList roles = roleService.isAdmin(roleDos)
+                ? CompiledCodeList.all(roleOrdinals, () -> roleService.listAll()
+                .stream()
+                .map(RoleDo::getCode)
+                .toList())
+                : CompiledCodeList.compile(roleOrdinals, roleDos.stream()
+                .map(RoleDo::getCode)
+                .toList());
+        return new Grant(roles, compilePermissions(userId, roleDos));
+    }
+
+    /**
+     * @param roleDos 用户直接绑定以及通过部门继承的角色
+     */
+    private CompiledCodeList compilePermissions(Long userId, List<RoleDo> roleDos) {
+        if (roleService.isAdmin(roleDos)) {
+            return CompiledCodeList.all(permissionOrdinals, () -> permissionService.listByUserId(userId)
+                    .stream()
+                    .map(PermissionDo::getCode)
+                    .toList());
+        }
+
+        // 相同角色组合的用户共享同一个权限集合对象, 编译结果随之共享
+        List<PermissionDo> permissionDos = permissionService.listByRoles(roleDos);
+        return profilePermissionCache.get(permissionDos, key -> CompiledCodeList.compile(permissionOrdinals, key
+                .stream()
+                .map(PermissionDo::getCode)
+                .toList()));
+    }
+
+    private record Grant(CompiledCodeList roles, CompiledCodeList permissions) {
+    }
+}
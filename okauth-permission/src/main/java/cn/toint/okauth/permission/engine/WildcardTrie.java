@@ -0,0 +1,101 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 通配符编码字典树
+ * <p>
+ * 编码按 ':' 切分为段, 整段为 '*' 的通配符作为独立节点, 可匹配一个或多个段,
+ * 与 Sa-Token 中 '*' 匹配任意字符 (包括 ':') 的语义一致.
+ * 匹配耗时只与编码长度相关, 与通配符编码的数量无关.
+ * 段内含 '*' 的编码 (例如 user*) 不能表示为字典树, 由调用方继续使用模糊匹配.
+ */
+final class WildcardTrie {
+    private static final String SEPARATOR = ":";
+    private static final String WILDCARD = "*";
+
+    private final Node root = new Node();
+
+    private boolean empty = true;
+
+    /**
+     * 编码是否可以加入字典树: 含通配符, 且通配符都是整段
+     */
+    static boolean accepts(String code) {
+        if (code.indexOf('*') < 0) return false;
+        for (String segment : code.split(SEPARATOR, -1)) {
+            if (segment.indexOf('*') >= 0 && !WILDCARD.equals(segment)) return false;
+        }
+        return true;
+    }
+
+    void add(String code) {
+        Node node = root;
+        for (String segment : code.split(SEPARATOR, -1)) {
+            if (WILDCARD.equals(segment)) {
+                if (node.wildcard == null) node.wildcard = new Node();
+                node = node.wildcard;
+            } else {
+                node = node.children.computeIfAbsent(segment, key -> new Node());
+            }
+        }
+        node.terminal = true;
+        empty = false;
+    }
+
+    boolean isEmpty() {
+        return empty;
+    }
+
+    boolean matches(String code) {
+        if (empty) return false;
+        return matches(root, code.split(SEPARATOR, -1), 0);
+    }
+
+    private static boolean matches(Node node, String[] segments, int index) {
+        if (index == segments.length) return node.terminal;
+
+        Node child = node.children.get(segments[index]);
+        if (child != null && matches(child, segments, index + 1)) return true;
+
+        // 通配符匹配一个或多个段
+        Node wildcard = node.wildcard;
+        if (wildcard != null) {
+            if (wildcard.isLeaf()) return wildcard.terminal;
+            for (int next = index + 1; next <= segments.length; next++) {
+                if (matches(wildcard, segments, next)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private Node wildcard;
+        private boolean terminal;
+
+        /**
+         * 通配符结尾, 后续任意段都可匹配
+         */
+        private boolean isLeaf() {
+            return children.isEmpty() && wildcard == null;
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package cn.toint.okauth.permission.event;
 
 import lombok.Getter;
+import lombok.Setter;
 import org.dromara.hutool.extra.spring.SpringUtil;
 import org.springframework.context.ApplicationEvent;
 
@@ -57,6 +58,14 @@ public class ClearPermissionCacheEvent extends ApplicationEvent {
         return this;
     }
 
+    /**
+     * 权限本身的内容发生变化, 刷新权限目录
+     */
+    public ClearPermissionCacheEvent refreshCatalog() {
+        getSource().setCatalog(true);
+        return this;
+    }
+
     public void publishEvent() {
         SpringUtil.publishEvent(this);
     }
@@ -67,6 +76,12 @@ public class ClearPermissionCacheEvent extends ApplicationEvent {
         private final Set<Long> roleIds = new HashSet<>();
         private final Set<Long> permissionIds = new HashSet<>();
 
+        /**
+         * 是否需要刷新权限目录
+         */
+        @Setter
+        private boolean catalog;
+
         public Detail adduserId(Long userId) {
             if (userId != null) {
                 userIds.add(userId);
@@ -87,5 +102,25 @@ public class ClearPermissionCacheEvent extends ApplicationEvent {
             }
             return this;
         }
+
+        /**
+         * 合并另一个事件的内容
+         */
+        public Detail merge(Detail other) {
+            if (other != null) {
+                userIds.addAll(other.getUserIds());
+                roleIds.addAll(other.getRoleIds());
+                permissionIds.addAll(other.getPermissionIds());
+                catalog |= other.isCatalog();
+            }
+            return this;
+        }
+
+        /**
+         * 是否不涉及任何角色与用户
+         */
+        public boolean isEmpty() {
+            return userIds.isEmpty() && roleIds.isEmpty() && permissionIds.isEmpty();
+        }
     }
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.event;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.util.Collection;
+
+/**
+ * 部门变更事件
+ * 部门新增, 修改, 移动或删除后发布, 事务提交后刷新部门目录
+ */
+public class DeptChangeEvent extends ApplicationEvent {
+
+    /**
+     * @param source 发生变更的部门ID
+     */
+    public DeptChangeEvent(Collection<Long> source) {
+        super(source);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Collection<Long> getSource() {
+        return (Collection<Long>) super.getSource();
+    }
+}
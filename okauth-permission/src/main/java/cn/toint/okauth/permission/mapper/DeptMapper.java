@@ -1,29 +1,29 @@
-///*
-// * Copyright 2025 Toint (599818663@qq.com)
-// * <p>
-// * Licensed under the Apache License, Version 2.0 (the "License");
-// * you may not use this file except in compliance with the License.
-// * You may obtain a copy of the License at
-// * <p>
-// * http://www.apache.org/licenses/LICENSE-2.0
-// * <p>
-// * Unless required by applicable law or agreed to in writing, software
-// * distributed under the License is distributed on an "AS IS" BASIS,
-// * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
-// * See the License for the specific language governing permissions and
-// * limitations under the License.
-// */
-//
-//package cn.toint.okauth.permission.mapper;
-//
-//import cn.toint.okauth.permission.model.DeptDo;
-//import com.mybatisflex.core.BaseMapper;
-//import org.apache.ibatis.annotations.Mapper;
-//
-///**
-// * @author Toint
-// * @date 2025/6/29
-// */
-//@Mapper
-//public interface DeptMapper extends BaseMapper<DeptDo> {
-//}
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.mapper;
+
+import cn.toint.okauth.permission.model.DeptDo;
+import com.mybatisflex.core.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * @author Toint
+ * @date 2025/6/29
+ */
+@Mapper
+public interface DeptMapper extends BaseMapper<DeptDo> {
+}
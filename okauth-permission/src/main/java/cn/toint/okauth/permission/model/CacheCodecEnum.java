@@ -0,0 +1,32 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.model;
+
+/**
+ * 权限缓存存储格式
+ */
+public enum CacheCodecEnum {
+    /**
+     * JSON
+     */
+    JSON,
+
+    /**
+     * 紧凑二进制: 变长整数, 字符串表, 大对象压缩
+     */
+    BINARY
+}
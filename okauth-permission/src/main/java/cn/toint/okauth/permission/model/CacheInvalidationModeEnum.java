@@ -0,0 +1,33 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.model;
+
+/**
+ * 权限缓存失效方式
+ */
+public enum CacheInvalidationModeEnum {
+    /**
+     * 查询受影响的角色和用户, 逐个删除缓存
+     */
+    DELETE,
+
+    /**
+     * 缓存键携带全局代际号, 失效时只需自增代际号, 旧缓存自然过期
+     * 适合单个角色绑定大量用户的场景
+     */
+    EPOCH
+}
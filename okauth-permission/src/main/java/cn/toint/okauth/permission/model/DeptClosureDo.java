@@ -0,0 +1,47 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.model;
+
+import cn.toint.okauth.permission.constant.OkAuthPermissionConstant;
+import cn.toint.oktool.spring.boot.model.BaseDo;
+import com.mybatisflex.annotation.Table;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 部门闭包表
+ * 每个部门与其所有祖先部门 (包括自身) 各保存一行, 查询子孙部门只需按祖先ID查询一次
+ */
+@Table(value = "dept_closure", dataSource = OkAuthPermissionConstant.DATA_SOURCE)
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class DeptClosureDo extends BaseDo {
+    /**
+     * 祖先部门ID
+     */
+    private Long ancestorId;
+
+    /**
+     * 子孙部门ID
+     */
+    private Long descendantId;
+
+    /**
+     * 层级差, 自身为0
+     */
+    private Integer depth;
+}
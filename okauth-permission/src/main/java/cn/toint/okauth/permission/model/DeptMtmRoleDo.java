@@ -0,0 +1,35 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.model;
+
+import cn.toint.okauth.permission.constant.OkAuthPermissionConstant;
+import cn.toint.oktool.spring.boot.model.BaseDo;
+import com.mybatisflex.annotation.Table;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 部门关联角色
+ * 部门及其全部子孙部门下的用户继承该角色
+ */
+@Table(value = "dept_mtm_role", dataSource = OkAuthPermissionConstant.DATA_SOURCE)
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class DeptMtmRoleDo extends BaseDo {
+    private Long deptId;
+    private Long roleId;
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.model;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class DeptUpdateRequest {
+    /**
+     * 部门ID
+     */
+    @NotNull
+    private Long id;
+
+    /**
+     * 父部门ID, 根部门为0
+     */
+    @NotNull
+    private Long parentId;
+
+    /**
+     * 部门名称
+     */
+    @NotBlank
+    private String name;
+
+    /**
+     * 备注
+     */
+    private String remark;
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.model;
+
+import lombok.Data;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 权限本地缓存失效消息
+ * 通过 Redis 频道广播到所有节点
+ */
+@Data
+public class PermissionCacheClearMessage {
+    /**
+     * 发送消息的节点标识, 节点收到自己发送的消息时忽略
+     */
+    private String nodeId;
+
+    /**
+     * 需要失效的用户ID
+     */
+    private Set<Long> userIds = new HashSet<>();
+
+    /**
+     * 需要失效的角色ID
+     */
+    private Set<Long> roleIds = new HashSet<>();
+
+    /**
+     * 角色绑定发生变化的用户ID (未展开)
+     */
+    private Set<Long> bindingUserIds = new HashSet<>();
+
+    /**
+     * 绑定关系或自身发生变化的角色ID (未展开)
+     */
+    private Set<Long> bindingRoleIds = new HashSet<>();
+
+    /**
+     * 是否清空全部
+     */
+    private boolean all;
+
+    /**
+     * 最新的缓存代际号, 非代际模式为null
+     */
+    private Long epoch;
+
+    /**
+     * 最新的权限目录版本号, 目录未变更为null
+     */
+    private Long catalogVersion;
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.model;
+
+import lombok.Data;
+
+/**
+ * 缓存失效流水线指标
+ */
+@Data
+public class PermissionCacheInvalidatorStats {
+    /**
+     * 等待执行的事件数 (已合并)
+     */
+    private long queueDepth;
+
+    /**
+     * 最早一个等待事件已等待的时间 (毫秒)
+     */
+    private long lagMillis;
+
+    /**
+     * 累计收到的事件数
+     */
+    private long submittedEvents;
+
+    /**
+     * 累计执行次数
+     */
+    private long flushCount;
+
+    /**
+     * 上次执行耗时 (毫秒)
+     */
+    private long lastFlushCostMillis;
+
+    /**
+     * 上次执行删除的缓存键数量
+     */
+    private long lastFlushKeys;
+}
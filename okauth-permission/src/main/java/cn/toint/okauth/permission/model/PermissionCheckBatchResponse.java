@@ -0,0 +1,41 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.model;
+
+import lombok.Data;
+
+/**
+ * 批量校验权限结果
+ */
+@Data
+public class PermissionCheckBatchResponse {
+    /**
+     * 校验数量
+     */
+    private Integer size;
+
+    /**
+     * 通过的数量
+     */
+    private Integer granted;
+
+    /**
+     * 结果位图的 Base64 编码
+     * 字节按小端序排列, 第 i 项的结果为 (bytes[i / 8] >> (i % 8)) & 1, 末尾为0的字节会被省略
+     */
+    private String bitmap;
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.model;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 权限的持有者
+ */
+@Data
+public class PermissionHolderResponse {
+    private Long permissionId;
+
+    /**
+     * 拥有该权限的角色ID, 包含admin
+     */
+    private List<Long> roleIds;
+
+    /**
+     * 通过角色拥有该权限的用户ID
+     */
+    private List<Long> userIds;
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.model;
+
+import lombok.Data;
+
+/**
+ * 请求内权限解析复用指标
+ */
+@Data
+public class RequestMemoStats {
+    /**
+     * 实际执行的解析次数
+     */
+    private long resolutions;
+
+    /**
+     * 同一请求内复用结果, 节省的重复解析次数
+     */
+    private long saved;
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.model;
+
+import cn.toint.oktool.util.ExceptionUtil;
+import lombok.Getter;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 预先序列化的响应
+ * <p>
+ * 缓存序列化后的 JSON 与其 gzip 压缩结果, ETag 为内容摘要.
+ * 命中时只需比对 ETag 或直接输出字节, 无需重新构建与序列化.
+ */
+@Getter
+public class SerializedResponse {
+    /**
+     * JSON 字节
+     */
+    private final byte[] json;
+
+    /**
+     * gzip 压缩后的 JSON 字节
+     */
+    private final byte[] gzip;
+
+    /**
+     * 内容摘要, 内容不同则摘要不同, 可作为内容版本号
+     */
+    private final String digest;
+
+    /**
+     * 强校验 ETag, 即加双引号的内容摘要
+     */
+    private final String etag;
+
+    private SerializedResponse(byte[] json, byte[] gzip, String digest) {
+        this.json = json;
+        this.gzip = gzip;
+        this.digest = digest;
+        this.etag = "\"" + digest + "\"";
+    }
+
+    public static SerializedResponse of(byte[] json) {
+        return new SerializedResponse(json, gzip(json), digest(json));
+    }
+
+    /**
+     * 转为 HTTP 响应
+     * If-None-Match 命中返回 304, 客户端支持 gzip 时直接输出压缩后的字节.
+     * 响应只允许客户端缓存且每次使用 ETag 协商, 适用于因用户而异的内容
+     *
+     * @param ifNoneMatch    请求头 If-None-Match
+     * @param acceptEncoding 请求头 Accept-Encoding
+     */
+    public ResponseEntity<byte[]> toResponseEntity(String ifNoneMatch, String acceptEncoding) {
+        return toResponseEntity(ifNoneMatch, acceptEncoding, CacheControl.noCache().cachePrivate());
+    }
+
+    /**
+     * 转为 HTTP 响应
+     * If-None-Match 命中返回 304, 客户端支持 gzip 时直接输出压缩后的字节
+     *
+     * @param ifNoneMatch    请求头 If-None-Match
+     * @param acceptEncoding 请求头 Accept-Encoding
+     * @param cacheControl   响应头 Cache-Control
+     */
+    public ResponseEntity<byte[]> toResponseEntity(String ifNoneMatch, String acceptEncoding, CacheControl cacheControl) {
+        if (matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzip);
+        }
+        return builder.body(json);
+    }
+
+    private boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) return false;
+        for (String tag : ifNoneMatch.split(",")) {
+            String value = tag.trim();
+            if (value.startsWith("W/")) value = value.substring(2);
+            if ("*".equals(value) || etag.equals(value)) return true;
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(out)) {
+            gzipOutputStream.write(json);
+        } catch (IOException e) {
+            throw ExceptionUtil.wrapRuntimeException("响应压缩失败: {}", e.getMessage());
+        }
+        return out.toByteArray();
+    }
+
+    private static String digest(byte[] json) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+            // 截取前16字节即可区分内容
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw ExceptionUtil.wrapRuntimeException("响应摘要计算失败: {}", e.getMessage());
+        }
+    }
+}
@@ -16,6 +16,8 @@
 
 package cn.toint.okauth.permission.properties;
 
+import cn.toint.okauth.permission.model.CacheCodecEnum;
+import cn.toint.okauth.permission.model.CacheInvalidationModeEnum;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
@@ -28,4 +30,203 @@ public class OkAuthPermissionProperties {
      * 缓存时间
      */
     private Duration cacheTimeout = Duration.ofHours(1);
+
+    /**
+     * 缓存失效方式
+     */
+    private CacheInvalidationModeEnum invalidationMode = CacheInvalidationModeEnum.DELETE;
+
+    /**
+     * 代际模式下, 本地代际号的最长刷新间隔
+     * 正常情况下代际号变化会通过 Redis 频道即时通知, 这里是通知丢失时的兜底
+     */
+    private Duration epochRefreshInterval = Duration.ofSeconds(1);
+
+    /**
+     * 角色与权限缓存在 Redis 中的存储格式
+     */
+    private CacheCodecEnum codec = CacheCodecEnum.JSON;
+
+    /**
+     * 二进制格式下, 超过该字节数时压缩
+     */
+    private int codecCompressThreshold = 1024;
+
+    /**
+     * 权限目录版本号的最长检查间隔
+     * 正常情况下目录变更会通过 Redis 频道即时通知, 这里是通知丢失时的兜底
+     */
+    private Duration catalogRefreshInterval = Duration.ofSeconds(1);
+
+    /**
+     * 同一请求内是否复用用户的角色与权限解析结果
+     */
+    private boolean requestMemo = true;
+
+    /**
+     * 批量校验权限时, 单次请求的最大校验数量
+     */
+    private int checkBatchMaxSize = 10000;
+
+    /**
+     * 本地缓存 (L1)
+     */
+    private LocalCache localCache = new LocalCache();
+
+    /**
+     * 缓存加载合并
+     */
+    private SingleFlight singleFlight = new SingleFlight();
+
+    /**
+     * 缓存失效流水线
+     */
+    private Invalidator invalidator = new Invalidator();
+
+    /**
+     * 内存权限图
+     */
+    private Graph graph = new Graph();
+
+    /**
+     * 权限快照导出
+     */
+    private Snapshot snapshot = new Snapshot();
+
+    /**
+     * 数据权限
+     */
+    private DataScope dataScope = new DataScope();
+
+    /**
+     * 本地缓存 (L1)
+     * 位于 Cache (Redis) 之前, 保存已反序列化的角色和权限
+     */
+    @Data
+    public static class LocalCache {
+        /**
+         * 是否开启本地缓存
+         */
+        private boolean enabled = true;
+
+        /**
+         * 每类缓存的最大条目数
+         */
+        private long maximumSize = 10000;
+
+        /**
+         * 写入后过期时间
+         * 跨节点失效消息丢失时的兜底
+         */
+        private Duration expireAfterWrite = Duration.ofMinutes(5);
+
+        /**
+         * 跨节点失效通知的 Redis 频道
+         */
+        private String channel = "okauth:permission:cache:clear";
+    }
+
+    /**
+     * 缓存加载合并
+     * 同一个键的并发加载, 进程内只执行一次, 跨节点通过 Redis 租约只由一个节点执行
+     */
+    @Data
+    public static class SingleFlight {
+        /**
+         * 租约时长
+         */
+        private Duration leaseTimeout = Duration.ofSeconds(3);
+
+        /**
+         * 其他节点等待的最长时间, 超过后自行加载, 不超过租约时长
+         * 等待占用请求线程, 应远小于请求超时时间
+         */
+        private Duration waitTimeout = Duration.ofMillis(300);
+
+        /**
+         * 其他节点等待期间轮询缓存的间隔
+         */
+        private Duration pollInterval = Duration.ofMillis(50);
+    }
+
+    /**
+     * 缓存失效流水线
+     * 事务提交后执行, 短时间窗口内的多次失效合并为一次, 删除命令批量发送
+     */
+    @Data
+    public static class Invalidator {
+        /**
+         * 是否异步执行
+         * 关闭后在事务提交后同步执行, 但不再合并
+         */
+        private boolean async = true;
+
+        /**
+         * 合并窗口
+         */
+        private Duration window = Duration.ofMillis(100);
+
+        /**
+         * 单条 UNLINK 命令携带的最大键数量
+         */
+        private int batchSize = 500;
+    }
+
+    /**
+     * 内存权限图
+     * 启动后将 用户-角色-权限 关系全量加载为压缩邻接表, 之后按写入产生的变更增量更新,
+     * 校验时角色和权限关系直接从内存读取, 不再访问 Redis
+     */
+    @Data
+    public static class Graph {
+        /**
+         * 是否开启
+         */
+        private boolean enabled = false;
+
+        /**
+         * 全量加载时每次查询的行数
+         */
+        private int batchSize = 10000;
+
+        /**
+         * 增量变更累计超过该数量后合并到邻接表
+         */
+        private int compactThreshold = 10000;
+    }
+
+    /**
+     * 权限快照导出
+     * 依赖内存权限图, 定期将 权限码, 权限画像, 用户 -> 画像 导出为二进制文件,
+     * 同机的网关等进程可通过 {@link cn.toint.okauth.permission.snapshot.PermissionSnapshotReader} 内存映射后直接校验
+     */
+    @Data
+    public static class Snapshot {
+        /**
+         * 是否开启
+         */
+        private boolean enabled = false;
+
+        /**
+         * 快照文件路径
+         */
+        private String path = "okauth-permission.snapshot";
+
+        /**
+         * 检查间隔, 权限图或权限目录有变化时才重新导出
+         */
+        private Duration interval = Duration.ofSeconds(10);
+    }
+
+    /**
+     * 数据权限
+     * 开启后为标注了 {@link cn.toint.okauth.permission.datascope.DataScope} 的 Mapper 自动追加部门条件
+     */
+    @Data
+    public static class DataScope {
+        /**
+         * 是否开启
+         */
+        private boolean enabled = false;
+    }
 }
@@ -1,28 +1,117 @@
-///*
-// * Copyright 2025 Toint (599818663@qq.com)
-// * <p>
-// * Licensed under the Apache License, Version 2.0 (the "License");
-// * you may not use this file except in compliance with the License.
-// * You may obtain a copy of the License at
-// * <p>
-// * http://www.apache.org/licenses/LICENSE-2.0
-// * <p>
-// * Unless required by applicable law or agreed to in writing, software
-// * distributed under the License is distributed on an "AS IS" BASIS,
-// * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
-// * See the License for the specific language governing permissions and
-// * limitations under the License.
-// */
-//
-//package cn.toint.okauth.permission.service;
-//
-//import cn.toint.okauth.permission.model.DeptTreeResponse;
-//
-//import java.util.List;
-//
-//public interface DeptService {
-//    /**
-//     * 全量查询部门树
-//     */
-//    List<DeptTreeResponse> listDeptTree();
-//}
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.service;
+
+import cn.toint.okauth.permission.model.DeptCreateRequest;
+import cn.toint.okauth.permission.model.DeptDo;
+import cn.toint.okauth.permission.model.DeptTreeResponse;
+import cn.toint.okauth.permission.model.DeptUpdateRequest;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 部门
+ */
+public interface DeptService {
+    /**
+     * 全量查询部门树
+     * 读取部门目录, 不访问数据库
+     */
+    List<DeptTreeResponse> listDeptTree();
+
+    /**
+     * 查询部门
+     *
+     * @return 部门不存在返回null
+     */
+    DeptDo getById(Long id);
+
+    /**
+     * 查询部门及其全部子孙部门ID
+     * 读取部门目录, 不访问数据库
+     *
+     * @return 升序的部门ID, 部门不存在返回空集合
+     */
+    List<Long> listDescendantIdById(Long id);
+
+    /**
+     * 添加部门
+     */
+    void create(DeptCreateRequest request);
+
+    /**
+     * 修改部门, 修改父部门时同步移动整个子树的闭包关系
+     */
+    void update(DeptUpdateRequest request);
+
+    /**
+     * 删除部门
+     * 存在子部门时, 子部门必须一并删除
+     */
+    void delete(List<Long> ids);
+
+    /**
+     * 设置用户所属部门, 覆盖已有的部门
+     *
+     * @param deptIds 部门ID, 为空时移除用户的全部部门
+     */
+    void bindUser(Long userId, List<Long> deptIds);
+
+    /**
+     * 查询用户所属部门ID
+     */
+    List<Long> listIdByUserId(Long userId);
+
+    /**
+     * 批量查询用户所属部门ID
+     *
+     * @return 用户ID -> 所属部门ID, 不属于任何部门的用户不包含在内
+     */
+    Map<Long, List<Long>> listIdByUserIds(Collection<Long> userIds);
+
+    /**
+     * 设置部门绑定的角色, 覆盖已有的角色
+     * 部门及其全部子孙部门下的用户继承这些角色
+     *
+     * @param roleIds 角色ID, 为空时移除部门的全部角色
+     */
+    void bindRole(Long deptId, List<Long> roleIds);
+
+    /**
+     * 查询部门直接绑定的角色ID
+     */
+    List<Long> listRoleIdById(Long id);
+
+    /**
+     * 查询用户通过所属部门继承的角色ID
+     * 所属部门及其全部祖先部门绑定的角色
+     */
+    List<Long> listInheritedRoleIdByUserId(Long userId);
+
+    /**
+     * 查询通过部门继承了角色的用户ID
+     */
+    List<Long> listUserIdByRoleIds(Collection<Long> roleIds);
+
+    /**
+     * 根据部门的父ID重建闭包表
+     * 用于闭包表上线前已存在的部门数据, 只写入差异
+     */
+    void rebuildClosure();
+}
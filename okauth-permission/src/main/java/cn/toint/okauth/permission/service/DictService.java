@@ -19,6 +19,7 @@ package cn.toint.okauth.permission.service;
 import cn.toint.okauth.permission.model.DictCreateRequest;
 import cn.toint.okauth.permission.model.DictDo;
 import cn.toint.okauth.permission.model.DictUpdateRequest;
+import cn.toint.okauth.permission.model.SerializedResponse;
 import cn.toint.oktool.spring.boot.model.PageRequest;
 import com.mybatisflex.core.paginate.Page;
 
@@ -27,17 +28,30 @@ import java.util.List;
 public interface DictService {
     /**
      * 查询所有列表
-     * 内置缓存
+     * 读取字典目录, 不访问数据库
      */
     List<DictDo> listAll();
 
+    /**
+     * 查询序列化后的全部字典响应
+     * 内置缓存功能, 字典未变更时直接返回缓存的字节
+     */
+    SerializedResponse getSerializedAll();
+
+    /**
+     * 字典版本号, 即全部字典响应的内容摘要, 内容不同则版本号不同
+     */
+    String version();
+
     /**
      * 根据type查询列表
+     * 读取字典目录, 不访问数据库
      */
     List<DictDo> listByType(String type);
 
     /**
      * 根据type和key查询
+     * 读取字典目录, 不访问数据库
      */
     DictDo getByTypeAndKey(String type, String key);
 
@@ -32,16 +32,31 @@ public interface PermissionService {
      * 内置缓存功能
      *
      * @param userId 用户ID
-     * @return 权限集合
+     * @return 权限集合, 相同角色组合的用户共享, 不可修改
      */
     List<PermissionDo> listByUserId(Long userId);
 
+    /**
+     * 根据角色组合查询所有权限
+     * 已查询出用户角色时使用, 不再重复查询用户角色
+     *
+     * @param roleDos 用户的角色, 包含admin时返回全部权限
+     * @return 权限集合, 相同角色组合共享, 不可修改
+     */
+    List<PermissionDo> listByRoles(List<RoleDo> roleDos);
+
     /**
      * 查询权限树
-     * 内置缓存功能
+     * 内置缓存功能, 相同角色组合的用户共享, 不可修改
      */
     List<PermissionTreeResponse> listTreeByUserId(Long userId);
 
+    /**
+     * 查询序列化后的权限树响应
+     * 内置缓存功能, 相同角色组合的用户共享
+     */
+    SerializedResponse getSerializedTreeByUserId(Long userId);
+
     /**
      * 查询权限
      *
@@ -86,4 +101,22 @@ public interface PermissionService {
      * @return 权限集合 (非null)
      */
     List<PermissionDo> listByRoleId(Long roleId);
+
+    /**
+     * 反向查询拥有权限的角色ID
+     * 内存权限图已加载时走反向索引, 否则查询数据库
+     *
+     * @param permissionId 权限ID
+     * @return 升序的角色ID, 包含admin (非null)
+     */
+    List<Long> listRoleIdByPermissionId(Long permissionId);
+
+    /**
+     * 反向查询通过角色拥有权限的用户ID
+     * 内存权限图已加载时走反向索引, 否则查询数据库
+     *
+     * @param permissionId 权限ID
+     * @return 升序的用户ID (非null)
+     */
+    List<Long> listUserIdByPermissionId(Long permissionId);
 }
@@ -20,7 +20,9 @@ import cn.toint.okauth.permission.model.RoleCreateRequest;
 import cn.toint.okauth.permission.model.RoleDo;
 import cn.toint.okauth.permission.model.RoleUpdateRequest;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface RoleService {
     /**
@@ -30,13 +32,36 @@ public interface RoleService {
 
     /**
      * 根据用户ID查询角色列表
-     * 内置缓存能力
+     * 内置缓存能力, admin用户返回全部角色
      *
      * @param userId 用户ID
      * @return 角色列表
      */
     List<RoleDo> listByUserId(Long userId);
 
+    /**
+     * 根据用户ID查询生效的角色列表, 即直接绑定以及通过部门继承的角色
+     * 内置缓存能力, admin用户不展开为全部角色, 用于鉴权时快速识别超级管理员
+     *
+     * @param userId 用户ID
+     * @return 角色列表
+     */
+    List<RoleDo> listEffectiveByUserId(Long userId);
+
+    /**
+     * 批量查询用户生效的角色列表, 即直接绑定以及通过部门继承的角色
+     * 缓存按批量读取, 结果不写入本地缓存, 用于批量鉴权等一次性场景, 避免挤出在线用户的本地缓存
+     *
+     * @param userIds 用户ID
+     * @return 用户ID -> 角色列表, 包含全部非null的用户ID
+     */
+    Map<Long, List<RoleDo>> listEffectiveByUserIds(Collection<Long> userIds);
+
+    /**
+     * 检查角色列表中是否包含admin角色
+     */
+    boolean isAdmin(List<RoleDo> roleDos);
+
     boolean hasById(Long id);
 
     RoleDo getById(Long id);
@@ -54,10 +79,19 @@ public interface RoleService {
     RoleDo getByCode(String code);
 
     /**
-     * 根据角色ID查询对应用户ID集合
+     * 根据角色ID查询直接绑定的用户ID集合, 与 {@link #bind(Long, List)} 的全量覆盖对应
      *
      * @param roleId 角色ID
      * @return 用户ID集合 (非null)
      */
+    List<Long> listBoundUserIdByRoleId(Long roleId);
+
+    /**
+     * 根据角色ID查询拥有该角色的用户ID集合, 即直接绑定以及通过部门继承的用户
+     * 与 {@link PermissionService#listUserIdByPermissionId(Long)} 口径一致
+     *
+     * @param roleId 角色ID
+     * @return 升序的用户ID (非null)
+     */
     List<Long> listUserIdByRoleId(Long roleId);
 }
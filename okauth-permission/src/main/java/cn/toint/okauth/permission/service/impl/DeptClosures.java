@@ -0,0 +1,162 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.service.impl;
+
+import cn.toint.okauth.permission.model.DeptClosureDo;
+import cn.toint.oktool.util.Assert;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 部门闭包关系计算
+ * <p>
+ * 只根据已查询出的闭包关系计算需要写入与删除的关系, 不访问数据库, 由 {@link DeptServiceImpl} 执行读写.
+ */
+@Slf4j
+final class DeptClosures {
+
+    private DeptClosures() {
+    }
+
+    /**
+     * 新部门的闭包关系: 自身一行, 每个祖先各一行
+     *
+     * @param parentClosures 父部门及其全部祖先的闭包关系, 即子孙为父部门的关系, 根部门为空集合
+     */
+    static List<DeptClosureDo> create(Long id, List<DeptClosureDo> parentClosures) {
+        List<DeptClosureDo> deptClosureDos = new ArrayList<>(parentClosures.size() + 1);
+        deptClosureDos.add(newClosure(id, id, 0));
+        for (DeptClosureDo parentClosure : parentClosures) {
+            deptClosureDos.add(newClosure(parentClosure.getAncestorId(), id, parentClosure.getDepth() + 1));
+        }
+        return deptClosureDos;
+    }
+
+    /**
+     * 移动子树
+     * 子树内部的关系不变, 只需删除子树与原祖先之间的关系, 再写入子树与新祖先之间的关系
+     *
+     * @param id               子树的根部门ID
+     * @param parentId         新的父部门ID
+     * @param ancestorClosures 子树根的闭包关系, 即子孙为子树根的关系
+     * @param subtreeClosures  子树的闭包关系, 即祖先为子树根的关系
+     * @param parentClosures   新的父部门及其全部祖先的闭包关系, 移动到根部门时为空集合
+     */
+    static Move move(Long id, Long parentId, List<DeptClosureDo> ancestorClosures,
+                     List<DeptClosureDo> subtreeClosures, List<DeptClosureDo> parentClosures) {
+        Assert.notEmpty(subtreeClosures, "部门[{}]缺少闭包数据, 请先重建闭包表", id);
+        Set<Long> subtreeIds = new HashSet<>();
+        subtreeClosures.forEach(deptClosureDo -> subtreeIds.add(deptClosureDo.getDescendantId()));
+        Assert.isFalse(subtreeIds.contains(parentId), "部门[{}]不能移动到自身或其子部门下", id);
+
+        Set<Long> oldAncestorIds = new HashSet<>();
+        for (DeptClosureDo ancestorClosure : ancestorClosures) {
+            if (ancestorClosure.getDepth() > 0) oldAncestorIds.add(ancestorClosure.getAncestorId());
+        }
+
+        // 新祖先与子树两两关联
+        List<DeptClosureDo> inserts = new ArrayList<>(parentClosures.size() * subtreeClosures.size());
+        for (DeptClosureDo parentClosure : parentClosures) {
+            for (DeptClosureDo subtreeClosure : subtreeClosures) {
+                inserts.add(newClosure(parentClosure.getAncestorId(), subtreeClosure.getDescendantId(),
+                        parentClosure.getDepth() + 1 + subtreeClosure.getDepth()));
+            }
+        }
+        return new Move(oldAncestorIds, subtreeIds, inserts);
+    }
+
+    /**
+     * 根据各部门的父部门计算完整的闭包关系
+     * 沿父ID向上得到每个部门应有的闭包关系, 存在循环依赖的部门只保留循环之前的部分
+     *
+     * @param parentIds 部门ID -> 父部门ID
+     * @return {@link #key(Long, Long)} -> 闭包关系
+     */
+    static Map<String, DeptClosureDo> build(Map<Long, Long> parentIds) {
+        Map<String, DeptClosureDo> closures = new HashMap<>();
+        parentIds.keySet().forEach(id -> {
+            Long currentId = id;
+            int depth = 0;
+            while (currentId != null && parentIds.containsKey(currentId)) {
+                if (depth > parentIds.size()) {
+                    log.warn("部门[{}]的上级存在循环依赖, 已跳过", id);
+                    break;
+                }
+                closures.put(key(currentId, id), newClosure(currentId, id, depth++));
+                currentId = parentIds.get(currentId);
+            }
+        });
+        return closures;
+    }
+
+    /**
+     * 对比现有的闭包关系与应有的闭包关系
+     *
+     * @param expected {@link #build(Map)} 的结果
+     * @param actual   现有的全部闭包关系
+     */
+    static Rebuild diff(Map<String, DeptClosureDo> expected, List<DeptClosureDo> actual) {
+        Map<String, DeptClosureDo> missing = new HashMap<>(expected);
+        List<Long> removeIds = new ArrayList<>();
+        for (DeptClosureDo deptClosureDo : actual) {
+            String key = key(deptClosureDo.getAncestorId(), deptClosureDo.getDescendantId());
+            DeptClosureDo expectedClosure = missing.get(key);
+            if (expectedClosure != null && Objects.equals(expectedClosure.getDepth(), deptClosureDo.getDepth())) {
+                missing.remove(key);
+            } else {
+                // 多余, 重复或层级差错误的关系
+                removeIds.add(deptClosureDo.getId());
+            }
+        }
+        return new Rebuild(removeIds, new ArrayList<>(missing.values()));
+    }
+
+    static String key(Long ancestorId, Long descendantId) {
+        return ancestorId + ":" + descendantId;
+    }
+
+    private static DeptClosureDo newClosure(Long ancestorId, Long descendantId, int depth) {
+        DeptClosureDo deptClosureDo = new DeptClosureDo();
+        deptClosureDo.init();
+        deptClosureDo.setAncestorId(ancestorId);
+        deptClosureDo.setDescendantId(descendantId);
+        deptClosureDo.setDepth(depth);
+        return deptClosureDo;
+    }
+
+    /**
+     * @param oldAncestorIds 需删除其与子树之间关系的原祖先
+     * @param subtreeIds     子树内的部门, 包括子树根
+     * @param inserts        新祖先与子树之间的关系
+     */
+    record Move(Set<Long> oldAncestorIds, Set<Long> subtreeIds, List<DeptClosureDo> inserts) {
+    }
+
+    /**
+     * @param removeIds 需删除的闭包关系ID
+     * @param inserts   缺失的闭包关系
+     */
+    record Rebuild(List<Long> removeIds, List<DeptClosureDo> inserts) {
+    }
+}
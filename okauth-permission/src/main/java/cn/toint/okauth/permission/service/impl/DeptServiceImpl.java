@@ -1,111 +1,415 @@
-///*
-// * Copyright 2025 Toint (599818663@qq.com)
-// * <p>
-// * Licensed under the Apache License, Version 2.0 (the "License");
-// * you may not use this file except in compliance with the License.
-// * You may obtain a copy of the License at
-// * <p>
-// * http://www.apache.org/licenses/LICENSE-2.0
-// * <p>
-// * Unless required by applicable law or agreed to in writing, software
-// * distributed under the License is distributed on an "AS IS" BASIS,
-// * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
-// * See the License for the specific language governing permissions and
-// * limitations under the License.
-// */
-//
-//package cn.toint.okauth.permission.service.impl;
-//
-//import cn.toint.okauth.permission.mapper.DeptMapper;
-//import cn.toint.okauth.permission.model.DeptDo;
-//import cn.toint.okauth.permission.model.DeptTreeResponse;
-//import cn.toint.okauth.permission.service.DeptService;
-//import cn.toint.oktool.util.ExceptionUtil;
-//import jakarta.annotation.Resource;
-//import lombok.extern.slf4j.Slf4j;
-//import org.dromara.hutool.core.bean.BeanUtil;
-//import org.dromara.hutool.core.collection.CollUtil;
-//import org.springframework.stereotype.Service;
-//
-//import java.util.*;
-//
-//@Service
-//@Slf4j
-//public class DeptServiceImpl implements DeptService {
-//
-//    @Resource
-//    private DeptMapper deptMapper;
-//
-//    @Override
-//    public List<DeptTreeResponse> listDeptTree() {
-//        // 查询所有部门
-//        List<DeptDo> deptDos = deptMapper.selectAll();
-//        if (deptDos.isEmpty()) {
-//            return new ArrayList<>();
-//        }
-//
-//        // 全部对象转换为vo
-//        List<DeptTreeResponse> deptVos = new ArrayList<>();
-//        for (DeptDo deptDo : deptDos) {
-//            DeptTreeResponse deptVo = new DeptTreeResponse();
-//            BeanUtil.copyProperties(deptDo, deptVo);
-//            deptVo.setChildren(new ArrayList<>());
-//            deptVos.add(deptVo);
-//        }
-//
-//        // 创建Map方便查找
-//        Map<Long, DeptTreeResponse> deptVoMap = new HashMap<>();
-//        for (DeptTreeResponse deptVo : deptVos) {
-//            deptVoMap.put(deptVo.getId(), deptVo);
-//        }
-//
-//        // 检测循环依赖
-//        for (DeptTreeResponse deptVo : deptVos) {
-//            Set<Long> path = new HashSet<>();
-//            Long currentId = deptVo.getId();
-//
-//            // 沿着parentId链向上查找，直到找到根节点或发现循环
-//            while (currentId != null && deptVoMap.containsKey(currentId)) {
-//                if (!path.add(currentId)) {  // add返回false说明已存在，即发现循环
-//                    throw ExceptionUtil.wrapRuntimeException("部门[{}]存在循环依赖", currentId);
-//                }
-//                DeptTreeResponse current = deptVoMap.get(currentId);
-//                currentId = (current.getParentId() == 0) ? null : current.getParentId();
-//            }
-//        }
-//
-//        // 构建树关系
-//        List<DeptTreeResponse> roots = new ArrayList<>();
-//        for (DeptTreeResponse deptVo : deptVos) {
-//            if (deptVo.getParentId() == 0) {
-//                // 找到根节点
-//                roots.add(deptVo);
-//            } else {
-//                // 找到父节点，把当前节点加入父节点的children
-//                DeptTreeResponse parent = deptVoMap.get(deptVo.getParentId());
-//                if (parent != null) {
-//                    parent.getChildren().add(deptVo);
-//                }
-//            }
-//        }
-//
-//        return roots;
-//    }
-//
-//    /**
-//     * 递归收集子部门
-//     * 如果部门的父部门已在集合中，则将该部门也加入集合
-//     */
-//    private void findAndAddChildDepts(DeptTreeResponse deptTree, Set<Long> allDeptIds) {
-//        if (allDeptIds.contains(deptTree.getParentId())) {
-//            allDeptIds.add(deptTree.getId());
-//        }
-//
-//        // 递归处理子部门
-//        if (CollUtil.isNotEmpty(deptTree.getChildren())) {
-//            for (DeptTreeResponse child : deptTree.getChildren()) {
-//                findAndAddChildDepts(child, allDeptIds);
-//            }
-//        }
-//    }
-//}
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.service.impl;
+
+import cn.toint.okauth.permission.cache.DeptCatalog;
+import cn.toint.okauth.permission.constant.OkAuthPermissionConstant;
+import cn.toint.okauth.permission.event.ClearPermissionCacheEvent;
+import cn.toint.okauth.permission.event.DeptChangeEvent;
+import cn.toint.okauth.permission.mapper.DeptClosureMapper;
+import cn.toint.okauth.permission.mapper.DeptMapper;
+import cn.toint.okauth.permission.mapper.DeptMtmRoleMapper;
+import cn.toint.okauth.permission.mapper.RoleMapper;
+import cn.toint.okauth.permission.mapper.UserMtmDeptMapper;
+import cn.toint.okauth.permission.model.DeptClosureDo;
+import cn.toint.okauth.permission.model.DeptCreateRequest;
+import cn.toint.okauth.permission.model.DeptDo;
+import cn.toint.okauth.permission.model.DeptMtmRoleDo;
+import cn.toint.okauth.permission.model.DeptTreeResponse;
+import cn.toint.okauth.permission.model.DeptUpdateRequest;
+import cn.toint.okauth.permission.model.RoleDo;
+import cn.toint.okauth.permission.model.UserMtmDeptDo;
+import cn.toint.okauth.permission.service.DeptService;
+import cn.toint.okauth.permission.util.TreeAssembler;
+import cn.toint.oktool.util.Assert;
+import com.mybatisflex.core.query.QueryWrapper;
+import com.mybatisflex.core.util.SqlUtil;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.dromara.hutool.core.bean.BeanUtil;
+import org.dromara.hutool.core.collection.CollUtil;
+import org.dromara.hutool.extra.spring.SpringUtil;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 部门
+ * <p>
+ * 部门层级保存在闭包表中, 写入时同步维护, 读取时使用部门目录中的内存邻接表.
+ * 查询某部门下的全部部门不再递归, 部门树也只需一次线性构建.
+ * 部门可以绑定角色, 部门及其全部子孙部门下的用户继承该角色, 组织调整只需修改少量部门数据, 无需重写用户的角色绑定.
+ */
+@Service
+@Slf4j
+public class DeptServiceImpl implements DeptService {
+
+    @Resource
+    private DeptMapper deptMapper;
+
+    @Resource
+    private DeptClosureMapper deptClosureMapper;
+
+    @Resource
+    private UserMtmDeptMapper userMtmDeptMapper;
+
+    @Resource
+    private DeptMtmRoleMapper deptMtmRoleMapper;
+
+    @Resource
+    private RoleMapper roleMapper;
+
+    @Resource
+    private DeptCatalog deptCatalog;
+
+    @Override
+    public List<DeptTreeResponse> listDeptTree() {
+        List<DeptDo> deptDos = deptCatalog.listAll();
+        List<DeptTreeResponse> deptTreeResponses = new ArrayList<>(deptDos.size());
+        for (DeptDo deptDo : deptDos) {
+            deptTreeResponses.add(toTreeResponse(deptDo));
+        }
+
+        // 构建树关系, 循环依赖已在写入时校验
+        return TreeAssembler.build(deptTreeResponses,
+                DeptTreeResponse::getId,
+                DeptTreeResponse::getParentId,
+                DeptTreeResponse::setChildren);
+    }
+
+    @Override
+    public DeptDo getById(Long id) {
+        Assert.notNull(id, "部门ID不能为空");
+        return deptMapper.selectOneById(id);
+    }
+
+    @Override
+    public List<Long> listDescendantIdById(Long id) {
+        Assert.notNull(id, "部门ID不能为空");
+        return Arrays.stream(deptCatalog.getDescendantIds(id)).boxed().toList();
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    @Override
+    public void create(DeptCreateRequest request) {
+        Assert.notNull(request, "请求参数不能为空");
+        Assert.validate(request);
+
+        // 父部门及其全部祖先
+        List<DeptClosureDo> parentClosures = listAncestorClosures(request.getParentId());
+
+        DeptDo deptDo = new DeptDo();
+        BeanUtil.copyProperties(request, deptDo);
+        deptDo.init();
+        deptMapper.insert(deptDo, false);
+
+        // 自身一行, 每个祖先各一行
+        Long id = deptDo.getId();
+        deptClosureMapper.insertBatch(DeptClosures.create(id, parentClosures));
+
+        SpringUtil.publishEvent(new DeptChangeEvent(List.of(id)));
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    @Override
+    public void update(DeptUpdateRequest request) {
+        Assert.notNull(request, "请求参数不能为空");
+        Assert.validate(request);
+
+        DeptDo deptDo = getById(request.getId());
+        Assert.notNull(deptDo, "部门不存在");
+
+        // 修改了父部门, 移动整个子树
+        if (!Objects.equals(deptDo.getParentId(), request.getParentId())) {
+            move(deptDo.getId(), request.getParentId());
+        }
+
+        BeanUtil.copyProperties(request, deptDo);
+        deptDo.freshUpdateTime();
+        int updated = deptMapper.update(deptDo, false);
+        Assert.isTrue(SqlUtil.toBool(updated), "修改失败");
+
+        SpringUtil.publishEvent(new DeptChangeEvent(List.of(deptDo.getId())));
+    }
+
+    /**
+     * 移动子树
+     * 子树内部的关系不变, 只需删除子树与原祖先之间的关系, 再写入子树与新祖先之间的关系
+     *
+     * @param id       子树的根部门ID
+     * @param parentId 新的父部门ID
+     */
+    private void move(Long id, Long parentId) {
+        // 自身及全部子孙
+        List<DeptClosureDo> subtreeClosures = deptClosureMapper.selectListByQuery(QueryWrapper.create()
+                .eq(DeptClosureDo::getAncestorId, id));
+        // 自身及全部祖先
+        List<DeptClosureDo> ancestorClosures = deptClosureMapper.selectListByQuery(QueryWrapper.create()
+                .eq(DeptClosureDo::getDescendantId, id));
+        DeptClosures.Move move = DeptClosures.move(id, parentId, ancestorClosures, subtreeClosures,
+                listAncestorClosures(parentId));
+
+        // 删除子树与原祖先之间的关系
+        if (!move.oldAncestorIds().isEmpty()) {
+            deptClosureMapper.deleteByQuery(QueryWrapper.create()
+                    .in(DeptClosureDo::getAncestorId, move.oldAncestorIds())
+                    .in(DeptClosureDo::getDescendantId, move.subtreeIds()));
+        }
+
+        // 子树下用户继承的角色可能变化
+        if (deptCatalog.hasRoleBindings()) evictUsers(move.subtreeIds());
+
+        // 新祖先与子树两两关联
+        if (!move.inserts().isEmpty()) deptClosureMapper.insertBatch(move.inserts());
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    @Override
+    public void delete(List<Long> ids) {
+        if (CollUtil.isEmpty(ids)) return;
+        Set<Long> deptIds = new HashSet<>(ids);
+        deptIds.remove(null);
+        if (deptIds.isEmpty()) return;
+
+        // 子部门必须一并删除
+        deptClosureMapper.selectListByQuery(QueryWrapper.create()
+                        .in(DeptClosureDo::getAncestorId, deptIds)
+                        .gt(DeptClosureDo::getDepth, 0))
+                .forEach(deptClosureDo -> Assert.isTrue(deptIds.contains(deptClosureDo.getDescendantId()),
+                        "部门[{}]存在子部门, 不能删除", deptClosureDo.getAncestorId()));
+
+        // 部门下用户继承的角色随之移除
+        evictUsers(deptIds);
+
+        deptMapper.deleteBatchByIds(deptIds);
+        deptClosureMapper.deleteByQuery(QueryWrapper.create()
+                .in(DeptClosureDo::getDescendantId, deptIds));
+        userMtmDeptMapper.deleteByQuery(QueryWrapper.create()
+                .in(UserMtmDeptDo::getDeptId, deptIds));
+        deptMtmRoleMapper.deleteByQuery(QueryWrapper.create()
+                .in(DeptMtmRoleDo::getDeptId, deptIds));
+
+        SpringUtil.publishEvent(new DeptChangeEvent(deptIds));
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    @Override
+    public void bindUser(Long userId, List<Long> deptIds) {
+        Assert.notNull(userId, "用户ID不能为空");
+        Set<Long> newDeptIds = deptIds == null ? new HashSet<>() : new HashSet<>(deptIds);
+        newDeptIds.remove(null);
+        for (Long deptId : newDeptIds) {
+            Assert.notNull(deptCatalog.get(deptId), "部门[{}]不存在", deptId);
+        }
+
+        userMtmDeptMapper.deleteByQuery(QueryWrapper.create()
+                .eq(UserMtmDeptDo::getUserId, userId));
+        if (!newDeptIds.isEmpty()) {
+            List<UserMtmDeptDo> userMtmDeptDos = new ArrayList<>(newDeptIds.size());
+            for (Long deptId : newDeptIds) {
+                UserMtmDeptDo userMtmDeptDo = new UserMtmDeptDo();
+                userMtmDeptDo.init();
+                userMtmDeptDo.setUserId(userId);
+                userMtmDeptDo.setDeptId(deptId);
+                userMtmDeptDos.add(userMtmDeptDo);
+            }
+            userMtmDeptMapper.insertBatch(userMtmDeptDos);
+        }
+
+        // 所属部门不属于部门目录, 不自增目录版本号, 只失效该用户的角色与数据权限
+        ClearPermissionCacheEvent.of()
+                .adduserId(userId)
+                .publishEvent();
+    }
+
+    @Override
+    public List<Long> listIdByUserId(Long userId) {
+        Assert.notNull(userId, "用户ID不能为空");
+        return userMtmDeptMapper.selectListByQuery(QueryWrapper.create()
+                        .select(UserMtmDeptDo::getDeptId)
+                        .eq(UserMtmDeptDo::getUserId, userId))
+                .stream()
+                .map(UserMtmDeptDo::getDeptId)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public Map<Long, List<Long>> listIdByUserIds(Collection<Long> userIds) {
+        if (CollUtil.isEmpty(userIds)) return new HashMap<>();
+        return userMtmDeptMapper.selectListByQuery(QueryWrapper.create()
+                        .select(UserMtmDeptDo::getUserId, UserMtmDeptDo::getDeptId)
+                        .in(UserMtmDeptDo::getUserId, userIds))
+                .stream()
+                .filter(userMtmDeptDo -> userMtmDeptDo.getDeptId() != null)
+                .collect(Collectors.groupingBy(UserMtmDeptDo::getUserId,
+                        Collectors.mapping(UserMtmDeptDo::getDeptId, Collectors.toList())));
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    @Override
+    public void bindRole(Long deptId, List<Long> roleIds) {
+        Assert.notNull(deptId, "部门ID不能为空");
+        Assert.notNull(deptMapper.selectOneById(deptId), "部门[{}]不存在", deptId);
+        Set<Long> newRoleIds = roleIds == null ? new HashSet<>() : new HashSet<>(roleIds);
+        newRoleIds.remove(null);
+        // admin必须直接绑定到用户, 避免通过组织调整意外获得超级管理员
+        Assert.isFalse(newRoleIds.contains(OkAuthPermissionConstant.Role.ADMIN_ID), "admin角色不允许绑定到部门");
+        if (!newRoleIds.isEmpty()) {
+            Set<Long> existRoleIds = new HashSet<>();
+            roleMapper.selectListByQuery(QueryWrapper.create()
+                            .select(RoleDo::getId)
+                            .in(RoleDo::getId, newRoleIds))
+                    .forEach(roleDo -> existRoleIds.add(roleDo.getId()));
+            for (Long roleId : newRoleIds) {
+                Assert.isTrue(existRoleIds.contains(roleId), "角色[{}]不存在", roleId);
+            }
+        }
+
+        deptMtmRoleMapper.deleteByQuery(QueryWrapper.create()
+                .eq(DeptMtmRoleDo::getDeptId, deptId));
+        if (!newRoleIds.isEmpty()) {
+            List<DeptMtmRoleDo> deptMtmRoleDos = new ArrayList<>(newRoleIds.size());
+            for (Long roleId : newRoleIds) {
+                DeptMtmRoleDo deptMtmRoleDo = new DeptMtmRoleDo();
+                deptMtmRoleDo.init();
+                deptMtmRoleDo.setDeptId(deptId);
+                deptMtmRoleDo.setRoleId(roleId);
+                deptMtmRoleDos.add(deptMtmRoleDo);
+            }
+            deptMtmRoleMapper.insertBatch(deptMtmRoleDos);
+        }
+
+        // 部门及其全部子孙部门下的用户都需要重新计算角色
+        List<Long> subtreeIds = deptClosureMapper.selectListByQuery(QueryWrapper.create()
+                        .select(DeptClosureDo::getDescendantId)
+                        .eq(DeptClosureDo::getAncestorId, deptId))
+                .stream()
+                .map(DeptClosureDo::getDescendantId)
+                .toList();
+        evictUsers(subtreeIds);
+
+        SpringUtil.publishEvent(new DeptChangeEvent(List.of(deptId)));
+    }
+
+    @Override
+    public List<Long> listRoleIdById(Long id) {
+        Assert.notNull(id, "部门ID不能为空");
+        return Arrays.stream(deptCatalog.getRoleIds(id)).boxed().toList();
+    }
+
+    @Override
+    public List<Long> listInheritedRoleIdByUserId(Long userId) {
+        // 直接查询数据库, 不依赖部门目录, 保证用户角色缓存重建时读取到最新的绑定
+        List<Long> deptIds = listIdByUserId(userId);
+        if (deptIds.isEmpty()) return new ArrayList<>();
+
+        List<Long> ancestorIds = deptClosureMapper.selectListByQuery(QueryWrapper.create()
+                        .select(DeptClosureDo::getAncestorId)
+                        .in(DeptClosureDo::getDescendantId, deptIds))
+                .stream()
+                .map(DeptClosureDo::getAncestorId)
+                .distinct()
+                .toList();
+        if (ancestorIds.isEmpty()) return new ArrayList<>();
+
+        return deptMtmRoleMapper.selectListByQuery(QueryWrapper.create()
+                        .select(DeptMtmRoleDo::getRoleId)
+                        .in(DeptMtmRoleDo::getDeptId, ancestorIds))
+                .stream()
+                .map(DeptMtmRoleDo::getRoleId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+    }
+
+    @Override
+    public List<Long> listUserIdByRoleIds(Collection<Long> roleIds) {
+        if (CollUtil.isEmpty(roleIds)) return new ArrayList<>();
+        long[] deptIds = deptCatalog.getInheritingDeptIds(roleIds);
+        if (deptIds.length == 0) return new ArrayList<>();
+        return listUserIdByDeptIds(Arrays.stream(deptIds).boxed().toList());
+    }
+
+    /**
+     * 清除部门下用户的角色缓存
+     */
+    private void evictUsers(Collection<Long> deptIds) {
+        List<Long> userIds = listUserIdByDeptIds(deptIds);
+        if (userIds.isEmpty()) return;
+        ClearPermissionCacheEvent clearPermissionCacheEvent = ClearPermissionCacheEvent.of();
+        userIds.forEach(clearPermissionCacheEvent::adduserId);
+        clearPermissionCacheEvent.publishEvent();
+    }
+
+    private List<Long> listUserIdByDeptIds(Collection<Long> deptIds) {
+        if (deptIds.isEmpty()) return new ArrayList<>();
+        return userMtmDeptMapper.selectListByQuery(QueryWrapper.create()
+                        .select(UserMtmDeptDo::getUserId)
+                        .in(UserMtmDeptDo::getDeptId, deptIds))
+                .stream()
+                .map(UserMtmDeptDo::getUserId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+    }
+
+    @Transactional(rollbackFor = Exception.class)
+    @Override
+    public void rebuildClosure() {
+        // 部门ID -> 父部门ID
+        Map<Long, Long> parentIds = new HashMap<>();
+        deptMapper.selectListByQuery(QueryWrapper.create()
+                        .select(DeptDo::getId, DeptDo::getParentId))
+                .forEach(deptDo -> parentIds.put(deptDo.getId(), deptDo.getParentId()));
+
+        // 删除多余或层级差错误的关系, 写入缺失的关系
+        DeptClosures.Rebuild rebuild = DeptClosures.diff(DeptClosures.build(parentIds), deptClosureMapper.selectAll());
+        if (!rebuild.removeIds().isEmpty()) deptClosureMapper.deleteBatchByIds(rebuild.removeIds());
+        if (!rebuild.inserts().isEmpty()) deptClosureMapper.insertBatch(rebuild.inserts());
+        log.info("部门闭包表重建完成, 删除: {}, 新增: {}", rebuild.removeIds().size(), rebuild.inserts().size());
+
+        SpringUtil.publishEvent(new DeptChangeEvent(parentIds.keySet()));
+    }
+
+    /**
+     * 查询部门及其全部祖先的闭包关系, 用作新的父部门
+     *
+     * @param parentId 父部门ID, 根部门返回空集合
+     */
+    private List<DeptClosureDo> listAncestorClosures(Long parentId) {
+        if (parentId == TreeAssembler.ROOT_PARENT_ID) return new ArrayList<>();
+        Assert.notNull(deptMapper.selectOneById(parentId), "父部门[{}]不存在", parentId);
+        List<DeptClosureDo> parentClosures = deptClosureMapper.selectListByQuery(QueryWrapper.create()
+                .eq(DeptClosureDo::getDescendantId, parentId));
+        Assert.notEmpty(parentClosures, "部门[{}]缺少闭包数据, 请先重建闭包表", parentId);
+        return parentClosures;
+    }
+
+    private DeptTreeResponse toTreeResponse(DeptDo deptDo) {
+        DeptTreeResponse deptTreeResponse = new DeptTreeResponse();
+        deptTreeResponse.setId(deptDo.getId());
+        deptTreeResponse.setCreateTime(deptDo.getCreateTime());
+        deptTreeResponse.setUpdateTime(deptDo.getUpdateTime());
+        deptTreeResponse.setName(deptDo.getName());
+        deptTreeResponse.setRemark(deptDo.getRemark());
+        deptTreeResponse.setParentId(deptDo.getParentId());
+        return deptTreeResponse;
+    }
+}
@@ -16,23 +16,26 @@
 
 package cn.toint.okauth.permission.service.impl;
 
+import cn.toint.okauth.permission.cache.DictCatalog;
+import cn.toint.okauth.permission.event.DictChangeEvent;
 import cn.toint.okauth.permission.mapper.DictMapper;
 import cn.toint.okauth.permission.model.DictCreateRequest;
 import cn.toint.okauth.permission.model.DictDo;
 import cn.toint.okauth.permission.model.DictUpdateRequest;
-import cn.toint.okauth.permission.properties.OkAuthPermissionProperties;
+import cn.toint.okauth.permission.model.SerializedResponse;
 import cn.toint.okauth.permission.service.DictService;
-import cn.toint.oktool.spring.boot.cache.Cache;
+import cn.toint.oktool.model.Response;
 import cn.toint.oktool.spring.boot.model.PageRequest;
 import cn.toint.oktool.util.Assert;
-import cn.toint.oktool.util.JacksonUtil;
-import com.fasterxml.jackson.core.type.TypeReference;
+import cn.toint.oktool.util.ExceptionUtil;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mybatisflex.core.paginate.Page;
 import com.mybatisflex.core.query.QueryWrapper;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 import org.dromara.hutool.core.collection.CollUtil;
+import org.dromara.hutool.extra.spring.SpringUtil;
 import org.springframework.beans.BeanUtils;
 import org.springframework.stereotype.Service;
 
@@ -47,48 +50,37 @@ public class DictServiceImpl implements DictService {
     private DictMapper dictMapper;
 
     @Resource
-    private Cache cache;
+    private DictCatalog dictCatalog;
 
     @Resource
-    private OkAuthPermissionProperties okAuthPermissionProperties;
-
-    private final String dictCacheKey = "dict";
+    private ObjectMapper objectMapper;
 
     @Override
     public List<DictDo> listAll() {
-        // 检查缓存
-        String cacheValue = cache.get(dictCacheKey);
-        if (StringUtils.isNotBlank(cacheValue)) {
-            return JacksonUtil.readValue(cacheValue, new TypeReference<>() {
-            });
-        }
+        return dictCatalog.listAll();
+    }
 
-        // 查询所有字典
-        List<DictDo> dictDos = dictMapper.selectListByQuery(QueryWrapper.create()
-                .orderBy(DictDo::getType, true)
-                .orderBy(DictDo::getSort, true));
+    @Override
+    public SerializedResponse getSerializedAll() {
+        return dictCatalog.getSerializedAll(this::serialize);
+    }
 
-        // 缓存
-        cacheValue = JacksonUtil.writeValueAsString(dictDos);
-        cache.put(dictCacheKey, cacheValue, okAuthPermissionProperties.getCacheTimeout());
-        return dictDos;
+    @Override
+    public String version() {
+        return getSerializedAll().getDigest();
     }
 
     @Override
     public List<DictDo> listByType(String type) {
         Assert.notBlank(type, "type must not be null");
-        return dictMapper.selectListByQuery(QueryWrapper.create()
-                .eq(DictDo::getType, type)
-                .orderBy(DictDo::getSort, true));
+        return dictCatalog.listByType(type);
     }
 
     @Override
     public DictDo getByTypeAndKey(String type, String key) {
         Assert.notBlank(type, "type must not be null");
         Assert.notBlank(key, "key must not be null");
-        return dictMapper.selectOneByQuery(QueryWrapper.create()
-                .eq(DictDo::getType, type)
-                .eq(DictDo::getKey, key));
+        return dictCatalog.get(type, key);
     }
 
     @Override
@@ -111,8 +103,8 @@ public class DictServiceImpl implements DictService {
         BeanUtils.copyProperties(request, dictDo);
         dictMapper.insert(dictDo, false);
 
-        // 清除缓存
-        clearCache();
+        // 刷新字典目录
+        SpringUtil.publishEvent(new DictChangeEvent(List.of(dictDo.getId())));
     }
 
     @Override
@@ -138,8 +130,8 @@ public class DictServiceImpl implements DictService {
         BeanUtils.copyProperties(request, dictDo);
         dictMapper.update(dictDo, false);
 
-        // 清除缓存
-        clearCache();
+        // 刷新字典目录
+        SpringUtil.publishEvent(new DictChangeEvent(List.of(id)));
     }
 
     @Override
@@ -148,8 +140,8 @@ public class DictServiceImpl implements DictService {
         ids.removeIf(Objects::isNull);
         if (CollUtil.isEmpty(ids)) return;
         dictMapper.deleteBatchByIds(ids);
-        // 清除缓存
-        clearCache();
+        // 刷新字典目录
+        SpringUtil.publishEvent(new DictChangeEvent(ids));
     }
 
     @Override
@@ -170,7 +162,15 @@ public class DictServiceImpl implements DictService {
                 .orderBy(DictDo::getSort, true));
     }
 
-    private void clearCache() {
-        cache.delete(dictCacheKey);
+    /**
+     * 序列化字典响应
+     * 使用 Spring MVC 相同的 ObjectMapper, 与直接返回对象时的输出一致
+     */
+    private SerializedResponse serialize(List<DictDo> dictDos) {
+        try {
+            return SerializedResponse.of(objectMapper.writeValueAsBytes(Response.success(dictDos)));
+        } catch (JsonProcessingException e) {
+            throw ExceptionUtil.wrapRuntimeException("字典序列化失败: {}", e.getMessage());
+        }
     }
 }
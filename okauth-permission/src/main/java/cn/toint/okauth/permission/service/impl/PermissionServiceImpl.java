@@ -16,19 +16,32 @@
 
 package cn.toint.okauth.permission.service.impl;
 
+import cn.toint.okauth.permission.cache.PermissionCacheCodec;
+import cn.toint.okauth.permission.cache.PermissionCacheKeys;
+import cn.toint.okauth.permission.cache.PermissionCatalog;
+import cn.toint.okauth.permission.cache.PermissionGraph;
+import cn.toint.okauth.permission.cache.PermissionLocalCache;
+import cn.toint.okauth.permission.cache.PermissionProfile;
+import cn.toint.okauth.permission.cache.PermissionProfileCache;
+import cn.toint.okauth.permission.cache.RedisPipelineCache;
+import cn.toint.okauth.permission.cache.SingleFlight;
 import cn.toint.okauth.permission.constant.OkAuthPermissionConstant;
 import cn.toint.okauth.permission.event.ClearPermissionCacheEvent;
 import cn.toint.okauth.permission.mapper.PermissionMapper;
 import cn.toint.okauth.permission.mapper.RoleMtmPermissionMapper;
+import cn.toint.okauth.permission.mapper.UserMtmRoleMapper;
 import cn.toint.okauth.permission.model.*;
 import cn.toint.okauth.permission.properties.OkAuthPermissionProperties;
+import cn.toint.okauth.permission.service.DeptService;
 import cn.toint.okauth.permission.service.PermissionService;
 import cn.toint.okauth.permission.service.RoleService;
-import cn.toint.oktool.spring.boot.cache.Cache;
+import cn.toint.okauth.permission.util.SortedLongArrays;
+import cn.toint.okauth.permission.util.TreeAssembler;
+import cn.toint.oktool.model.Response;
 import cn.toint.oktool.util.Assert;
 import cn.toint.oktool.util.ExceptionUtil;
-import cn.toint.oktool.util.JacksonUtil;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.core.util.SqlUtil;
 import jakarta.annotation.Resource;
@@ -38,6 +51,7 @@ import org.dromara.hutool.core.bean.BeanUtil;
 import org.dromara.hutool.core.collection.CollUtil;
 import org.dromara.hutool.core.util.EnumUtil;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
 
@@ -55,72 +69,167 @@ public class PermissionServiceImpl implements PermissionService {
     @Resource
     private RoleService roleService;
 
+    @Resource
+    private DeptService deptService;
+
     @Resource
     private RoleMtmPermissionMapper roleMtmPermissionMapper;
 
     @Resource
-    private Cache cache;
+    private UserMtmRoleMapper userMtmRoleMapper;
 
     @Resource
     private OkAuthPermissionProperties okAuthPermissionProperties;
 
+    @Resource
+    private PermissionLocalCache permissionLocalCache;
+
+    @Resource
+    private RedisPipelineCache redisPipelineCache;
+
+    @Resource
+    private SingleFlight singleFlight;
+
+    @Resource
+    private PermissionCacheKeys permissionCacheKeys;
+
+    @Resource
+    private PermissionCacheCodec permissionCacheCodec;
+
+    @Resource
+    private PermissionCatalog permissionCatalog;
+
+    @Resource
+    private PermissionGraph permissionGraph;
+
+    @Resource
+    private PermissionProfileCache permissionProfileCache;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
     @Override
     public List<PermissionDo> listByUserId(Long userId) {
-        Assert.notNull(userId, "用户ID不能为空");
+        PermissionProfile permissionProfile = getProfile(userId);
+        if (permissionProfile == null) return new ArrayList<>();
+        return permissionProfile.getPermissions();
+    }
+
+    @Override
+    public List<PermissionDo> listByRoles(List<RoleDo> roleDos) {
+        PermissionProfile permissionProfile = getProfile(roleDos);
+        if (permissionProfile == null) return new ArrayList<>();
+        return permissionProfile.getPermissions();
+    }
 
-        // 当前用户拥有的所有权限
-        Set<PermissionDo> allPermissionDos = new HashSet<>();
+    /**
+     * 查询用户的权限画像
+     * 相同角色组合的用户共享同一个画像
+     *
+     * @return 用户没有任何角色时返回null
+     */
+    private PermissionProfile getProfile(Long userId) {
+        Assert.notNull(userId, "用户ID不能为空");
+        return getProfile(roleService.listEffectiveByUserId(userId));
+    }
 
-        // 1. 查询用户的所有角色
-        List<RoleDo> roleDos = roleService.listByUserId(userId);
-        List<Long> roleIds = roleDos.stream()
+    /**
+     * 查询角色组合的权限画像
+     *
+     * @return 没有任何角色时返回null
+     */
+    private PermissionProfile getProfile(List<RoleDo> roleDos) {
+        // 1. admin拥有全部权限, 只需admin角色即可, 无需展开全部角色
+        List<Long> roleIds = roleService.isAdmin(roleDos)
+                ? List.of(OkAuthPermissionConstant.Role.ADMIN_ID)
+                : roleDos.stream()
                 .map(RoleDo::getId)
                 .filter(Objects::nonNull)
                 .toList();
 
+        // 2. 没有任何角色, 退出
+        if (roleIds.isEmpty()) return null;
 
-        // 2. 当前用户没有任何角色, 退出
-        if (roleIds.isEmpty()) return new ArrayList<>();
+        // 3. 相同角色组合的画像已存在, 直接复用
+        String fingerprint = PermissionProfileCache.fingerprint(roleIds);
+        PermissionProfile permissionProfile = permissionProfileCache.get(fingerprint);
+        if (permissionProfile != null) return permissionProfile;
 
-        // 3. 尝试从缓存中查找所有角色拥有的所有权限
-        List<String> cacheKeys = roleIds.stream()
-                .map(String::valueOf)
-                .map(OkAuthPermissionConstant.roleMtmPermissionCacheKeyBuilder::build)
+        long generation = permissionProfileCache.generation();
+        permissionProfile = new PermissionProfile(fingerprint, new HashSet<>(roleIds), listByRoleIds(roleIds));
+        return permissionProfileCache.put(permissionProfile, generation);
+    }
+
+    /**
+     * 查询多个角色拥有的全部权限
+     * 各角色的有序权限ID归并为并集, 再从目录中取出权限, 全程按 long 比较, 不依赖权限对象的 equals/hashCode
+     */
+    private List<PermissionDo> listByRoleIds(List<Long> roleIds) {
+        // 各角色拥有的有序权限ID
+        List<long[]> rolePermissionIds = new ArrayList<>(roleIds.size());
+
+        // 0. 内存权限图已加载时直接读取
+        if (permissionGraph.isReady()) {
+            for (Long roleId : roleIds) {
+                long[] graphPermissionIds = getGraphPermissionIds(roleId);
+                if (graphPermissionIds == null) break;
+                rolePermissionIds.add(graphPermissionIds);
+            }
+            if (rolePermissionIds.size() == roleIds.size()) {
+                return permissionCatalog.list(SortedLongArrays.union(rolePermissionIds));
+            }
+            rolePermissionIds.clear();
+        }
+
+        // 1. 先从本地缓存中查找角色拥有的权限ID
+        List<Long> remoteRoleIds = new ArrayList<>();
+        for (Long roleId : roleIds) {
+            long[] localPermissionIds = permissionLocalCache.getPermissionIds(roleId);
+            if (localPermissionIds != null) {
+                rolePermissionIds.add(localPermissionIds);
+            } else {
+                remoteRoleIds.add(roleId);
+            }
+        }
+
+        // 本地缓存全部命中, 直接从目录中取出权限
+        if (remoteRoleIds.isEmpty()) {
+            return permissionCatalog.list(SortedLongArrays.union(rolePermissionIds));
+        }
+
+        // 2. 尝试从缓存中查找剩余角色拥有的所有权限ID
+        long generation = permissionLocalCache.generation();
+        List<String> cacheKeys = remoteRoleIds.stream()
+                .map(permissionCacheKeys::roleMtmPermission)
                 .toList();
 
-        // 角色在缓存中的权限字符串, 未找到对应的缓存用null占位
-        List<String> cacheValues = cache.multiGet(cacheKeys);
-        // 未命中缓存的权限ID集合, 需要到数据库加载
+        // 角色在缓存中的权限ID字符串, 未找到对应的缓存用null占位
+        List<String> cacheValues = redisPipelineCache.multiGet(cacheKeys);
+        // 未命中缓存的角色ID集合, 需要到数据库加载
         List<Long> uncacheRoleIds = new ArrayList<>();
 
         for (int i = 0, cacheValuesSize = cacheValues.size(); i < cacheValuesSize; i++) {
-            // 单个角色的权限缓存
+            // 单个角色的权限ID缓存
             // 如果是空值, 说明这个角色没有权限缓存, 需要到数据库加载
             // 如果是[], 说明这个角色没有对应的权限, 不需要到数据库加载
-            String cacheValue = cacheValues.get(i);
-            if (StringUtils.isBlank(cacheValue)) {
-                uncacheRoleIds.add(roleIds.get(i));
+            long[] cachePermissionIds = decodeIds(cacheValues.get(i));
+            if (cachePermissionIds == null) {
+                uncacheRoleIds.add(remoteRoleIds.get(i));
             } else {
-                List<PermissionDo> cachePermissionDos = JacksonUtil.readValue(cacheValue, new TypeReference<>() {
-                });
-                cachePermissionDos.stream()
-                        .filter(Objects::nonNull)
-                        .forEach(allPermissionDos::add);
+                rolePermissionIds.add(permissionLocalCache.putPermissionIds(remoteRoleIds.get(i), cachePermissionIds, generation));
             }
         }
 
-        // 4. 用户角色全部命中缓存, 直接返回缓存内容
-        if (uncacheRoleIds.isEmpty()) {
-            return new ArrayList<>(allPermissionDos);
-        }
-
-        // 5. 剩余未命中缓存的角色, 查询其对应的所有权限, 角色无权限的用空集合占位
-        for (Long uncacheRoleId : uncacheRoleIds) {
-            List<PermissionDo> permissionDos = listByRoleId(uncacheRoleId); // 内置缓存处理能力
-            allPermissionDos.addAll(permissionDos);
+        // 3. 剩余未命中缓存的角色, 批量查询其对应的所有权限ID, 角色无权限的用空集合占位
+        // 角色组合相同的并发加载合并为一次
+        if (!uncacheRoleIds.isEmpty()) {
+            String flightKey = OkAuthPermissionConstant.roleMtmPermissionCacheKeyBuilder.build(PermissionProfileCache.fingerprint(uncacheRoleIds));
+            singleFlight.load(flightKey, () -> getCachePermissionIds(uncacheRoleIds), () -> loadByRoleIds(uncacheRoleIds, generation))
+                    .forEach((roleId, permissionIds) -> rolePermissionIds.add(permissionLocalCache.putPermissionIds(roleId, permissionIds, generation)));
         }
 
-        return new ArrayList<>(allPermissionDos);
+        // 4. 合并后从目录中取出权限
+        return permissionCatalog.list(SortedLongArrays.union(rolePermissionIds));
     }
 
     @Override
@@ -131,6 +240,7 @@ public class PermissionServiceImpl implements PermissionService {
 
     @SuppressWarnings("unchecked")
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void create(PermissionCreateRequest request) {
         String code = request.getCode();
         Integer type = request.getType();
@@ -151,6 +261,9 @@ public class PermissionServiceImpl implements PermissionService {
             Assert.isNull(permissionDo, "权限码已存在");
         }
 
+        // 父权限必须存在
+        checkParent(null, request.getParentId());
+
         // 2. 数据初始化
         PermissionDo permissionDo = new PermissionDo();
         BeanUtil.copyProperties(request, permissionDo);
@@ -163,14 +276,16 @@ public class PermissionServiceImpl implements PermissionService {
         // 3. 执行入库
         permissionMapper.insert(permissionDo, false);
 
-        // 清除缓存
+        // 刷新权限目录, 新权限只会出现在admin的权限中
         ClearPermissionCacheEvent.of()
-                .addPermissionId(permissionDo.getId())
+                .addRoleId(OkAuthPermissionConstant.Role.ADMIN_ID)
+                .refreshCatalog()
                 .publishEvent();
     }
 
     @SuppressWarnings("unchecked")
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void update(PermissionUpdateRequest request) {
         Assert.notNull(request, "请求参数不能为空");
         Assert.validate(request);
@@ -185,25 +300,62 @@ public class PermissionServiceImpl implements PermissionService {
             Assert.isNull(permissionMapper.selectOneByQuery(queryWrapper), "权限码已存在");
         }
 
-        // 检查是否存在
-        PermissionDo permissionDo = getById(request.getId());
+        // 检查是否存在, 锁定当前权限, 并发移动时与检查父权限链的事务互斥
+        PermissionDo permissionDo = permissionMapper.selectOneByQuery(QueryWrapper.create()
+                .eq(PermissionDo::getId, request.getId())
+                .forUpdate());
         Assert.notNull(permissionDo, "权限不存在");
 
         PermissionTypeEnum typeEnum = EnumUtil.getBy(PermissionTypeEnum::getValue, request.getType());
         Assert.notNull(typeEnum, "非法的权限类型");
 
+        // 修改了父权限, 检查是否产生循环依赖
+        if (!Objects.equals(permissionDo.getParentId(), request.getParentId())) {
+            checkParent(permissionDo.getId(), request.getParentId());
+        }
+
         BeanUtil.copyProperties(request, permissionDo);
         permissionDo.freshUpdateTime();
 
         int updated = permissionMapper.update(permissionDo, false);
         Assert.isTrue(SqlUtil.toBool(updated), "修改失败");
 
-        // 清除缓存
+        // 角色只保存权限ID, 刷新权限目录即可
         ClearPermissionCacheEvent.of()
-                .addPermissionId(permissionDo.getId())
+                .refreshCatalog()
                 .publishEvent();
     }
 
+    /**
+     * 校验父权限
+     * 父权限必须存在, 且不能是自身或自身的子孙权限.
+     * 在当前事务中沿父ID逐级向上查询数据库并锁定经过的权限, 读取权限树时无需再检查循环依赖.
+     * 权限目录在事务提交后异步刷新, 可能尚未包含刚提交的移动, 不能用于此校验
+     *
+     * @param id       权限ID, 新增时为null
+     * @param parentId 父权限ID
+     */
+    private void checkParent(Long id, Long parentId) {
+        if (parentId == TreeAssembler.ROOT_PARENT_ID) return;
+        Assert.isTrue(parentIdOf(parentId) != null, "父权限[{}]不存在", parentId);
+        if (id == null) return;
+        Assert.isFalse(TreeAssembler.createsCycle(id, parentId, this::parentIdOf), "权限[{}]不能移动到自身或其子权限下", id);
+    }
+
+    /**
+     * 查询并锁定父权限ID
+     * 需在事务中调用, 锁定到事务结束, 防止并发移动在未提交的父权限链上产生环
+     *
+     * @return 权限不存在返回null
+     */
+    private Long parentIdOf(Long id) {
+        PermissionDo permissionDo = permissionMapper.selectOneByQuery(QueryWrapper.create()
+                .select(PermissionDo::getId, PermissionDo::getParentId)
+                .eq(PermissionDo::getId, id)
+                .forUpdate());
+        return permissionDo == null ? null : permissionDo.getParentId();
+    }
+
     @Override
     public boolean hasById(Long id) {
         if (id == null) {
@@ -213,6 +365,7 @@ public class PermissionServiceImpl implements PermissionService {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void bind(Long roleId, List<Long> permissionIds) {
         Assert.notNull(roleId, "角色ID不能为空");
         Assert.notEmpty(permissionIds, "权限ID不能为空");
@@ -253,41 +406,30 @@ public class PermissionServiceImpl implements PermissionService {
     public List<PermissionDo> listByRoleId(Long roleId) {
         Assert.notNull(roleId, "角色ID不能为空");
 
-        // 先查询缓存中角色是否存在对应的权限集合
-        String cacheKey = OkAuthPermissionConstant.roleMtmPermissionCacheKeyBuilder.build(String.valueOf(roleId));
-        String cacheValue = cache.get(cacheKey);
-        if (StringUtils.isNotBlank(cacheValue)) {
-            // 命中缓存, 直接返回结果
-            return JacksonUtil.readValue(cacheValue, new TypeReference<>() {
-            });
-        }
-
-
-        // 检查admin角色, admin应拥有所有权限
-        // 非admin角色, 查询角色对应的权限集合
-        List<PermissionDo> permissionDos = new ArrayList<>();
-        if (OkAuthPermissionConstant.Role.ADMIN_ID == roleId) {
-            permissionDos = permissionMapper.selectAll();
-        } else {
-            // 查询数据库角色对应的权限集合
-            List<Long> permissionIds = roleMtmPermissionMapper.selectListByQuery(QueryWrapper.create()
-                            .eq(RoleMtmPermissionDo::getRoleId, roleId))
-                    .stream()
-                    .map(RoleMtmPermissionDo::getPermissionId)
-                    .toList();
-            if (CollUtil.isNotEmpty(permissionIds)) {
-                permissionDos = permissionMapper.selectListByIds(permissionIds);
+        // 先查询内存权限图, 再查询本地缓存
+        long[] permissionIds = getGraphPermissionIds(roleId);
+        if (permissionIds == null) permissionIds = permissionLocalCache.getPermissionIds(roleId);
+        if (permissionIds == null) {
+            long generation = permissionLocalCache.generation();
+
+            // 再查询缓存中角色是否存在对应的权限ID集合
+            Map<Long, long[]> cachePermissionIds = getCachePermissionIds(List.of(roleId));
+
+            // 未命中缓存, 从数据库加载, 同一角色的并发加载合并为一次
+            if (cachePermissionIds == null) {
+                String cacheKey = permissionCacheKeys.roleMtmPermission(roleId);
+                cachePermissionIds = singleFlight.load(cacheKey,
+                        () -> getCachePermissionIds(List.of(roleId)),
+                        () -> loadByRoleIds(List.of(roleId), generation));
             }
+            permissionIds = permissionLocalCache.putPermissionIds(roleId, cachePermissionIds.get(roleId), generation);
         }
 
-        // 加入缓存
-        permissionDos.removeIf(Objects::isNull);
-        cacheValue = JacksonUtil.writeValueAsString(permissionDos);
-        cache.put(cacheKey, cacheValue, okAuthPermissionProperties.getCacheTimeout());
-        return permissionDos;
+        return permissionCatalog.list(permissionIds);
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void delete(List<Long> ids) {
         if (CollUtil.isEmpty(ids)) return;
 
@@ -304,8 +446,8 @@ public class PermissionServiceImpl implements PermissionService {
                     .toList());
         }
 
-        // 清除缓存
-        ClearPermissionCacheEvent clearPermissionCacheEvent = ClearPermissionCacheEvent.of();
+        // 清除缓存, 并刷新权限目录
+        ClearPermissionCacheEvent clearPermissionCacheEvent = ClearPermissionCacheEvent.of().refreshCatalog();
         ids.forEach(clearPermissionCacheEvent::addPermissionId);
         roleMtmPermissionDos.forEach(item -> {
             clearPermissionCacheEvent.addPermissionId(item.getPermissionId());
@@ -316,61 +458,205 @@ public class PermissionServiceImpl implements PermissionService {
 
     @Override
     public List<PermissionTreeResponse> listTreeByUserId(Long userId) {
-        // 查询所有权限
-        List<PermissionDo> permissionDos = listByUserId(userId);
+        // 权限树随画像缓存, 相同角色组合只构建一次
+        PermissionProfile permissionProfile = getProfile(userId);
+        if (permissionProfile == null) return new ArrayList<>();
+        return permissionProfile.getTree(this::buildTree);
+    }
+
+    @Override
+    public SerializedResponse getSerializedTreeByUserId(Long userId) {
+        PermissionProfile permissionProfile = getProfile(userId);
+        if (permissionProfile == null) return serializeTree(new ArrayList<>());
+        return permissionProfile.getSerializedTree(this::buildTree, this::serializeTree);
+    }
+
+    /**
+     * 序列化权限树响应
+     * 使用 Spring MVC 相同的 ObjectMapper, 与直接返回对象时的输出一致
+     */
+    private SerializedResponse serializeTree(List<PermissionTreeResponse> permissionTreeResponses) {
+        try {
+            return SerializedResponse.of(objectMapper.writeValueAsBytes(Response.success(permissionTreeResponses)));
+        } catch (JsonProcessingException e) {
+            throw ExceptionUtil.wrapRuntimeException("权限树序列化失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 根据权限构建权限树
+     */
+    private List<PermissionTreeResponse> buildTree(List<PermissionDo> permissionDos) {
         if (permissionDos.isEmpty()) {
             return new ArrayList<>();
         }
 
         // 全部对象转为vo
-        List<PermissionTreeResponse> permissionTreeResponses = new ArrayList<>();
+        List<PermissionTreeResponse> permissionTreeResponses = new ArrayList<>(permissionDos.size());
         for (PermissionDo permissionDo : permissionDos) {
-            PermissionTreeResponse permissionVo = new PermissionTreeResponse();
-            BeanUtil.copyProperties(permissionDo, permissionVo);
-            permissionTreeResponses.add(permissionVo);
+            permissionTreeResponses.add(toTreeResponse(permissionDo));
         }
 
         // 排序
         permissionTreeResponses.sort(Comparator.comparingInt(PermissionTreeResponse::getSort));
 
-        // 创建Map方便查找
-        Map<Long, PermissionTreeResponse> permissionVoMap = new HashMap<>();
-        for (PermissionTreeResponse permissionVo : permissionTreeResponses) {
-            permissionVoMap.put(permissionVo.getId(), permissionVo);
+        // 构建树关系, 循环依赖已在写入时校验
+        return TreeAssembler.build(permissionTreeResponses,
+                PermissionTreeResponse::getId,
+                PermissionTreeResponse::getParentId,
+                PermissionTreeResponse::setChildren);
+    }
+
+    private PermissionTreeResponse toTreeResponse(PermissionDo permissionDo) {
+        PermissionTreeResponse permissionVo = new PermissionTreeResponse();
+        permissionVo.setId(permissionDo.getId());
+        permissionVo.setCreateTime(permissionDo.getCreateTime());
+        permissionVo.setUpdateTime(permissionDo.getUpdateTime());
+        permissionVo.setParentId(permissionDo.getParentId());
+        permissionVo.setType(permissionDo.getType());
+        permissionVo.setName(permissionDo.getName());
+        permissionVo.setPath(permissionDo.getPath());
+        permissionVo.setComponent(permissionDo.getComponent());
+        permissionVo.setComponentName(permissionDo.getComponentName());
+        permissionVo.setIcon(permissionDo.getIcon());
+        permissionVo.setSort(permissionDo.getSort());
+        permissionVo.setCode(permissionDo.getCode());
+        return permissionVo;
+    }
+
+    /**
+     * 从缓存中批量读取角色对应的权限ID
+     *
+     * @param roleIds 角色ID
+     * @return 角色ID -> 有序的权限ID, 任一角色未命中返回null
+     */
+    private Map<Long, long[]> getCachePermissionIds(List<Long> roleIds) {
+        List<String> cacheKeys = roleIds.stream()
+                .map(permissionCacheKeys::roleMtmPermission)
+                .toList();
+        List<String> cacheValues = redisPipelineCache.multiGet(cacheKeys);
+
+        Map<Long, long[]> result = new HashMap<>();
+        for (int i = 0, cacheValuesSize = cacheValues.size(); i < cacheValuesSize; i++) {
+            long[] cachePermissionIds = decodeIds(cacheValues.get(i));
+            if (cachePermissionIds == null) return null;
+            result.put(roleIds.get(i), cachePermissionIds);
         }
+        return result;
+    }
 
-        // 检测循环依赖
-        for (PermissionTreeResponse permissionVo : permissionTreeResponses) {
-            Set<Long> path = new HashSet<>();
-            Long currentId = permissionVo.getId();
-
-            // 沿着parentId链向上查找，直到找到根节点或发现循环
-            while (currentId != null && permissionVoMap.containsKey(currentId)) {
-                if (!path.add(currentId)) {  // add返回false说明已存在，即发现循环
-                    throw ExceptionUtil.wrapRuntimeException("权限[{}]存在循环依赖", currentId);
-                }
-                PermissionTreeResponse current = permissionVoMap.get(currentId);
-                currentId = (current.getParentId() == 0) ? null : current.getParentId();
-            }
+    /**
+     * 解析角色的权限ID缓存
+     *
+     * @return 未命中或缓存值损坏返回null
+     */
+    private long[] decodeIds(String cacheValue) {
+        if (StringUtils.isBlank(cacheValue)) return null;
+        try {
+            return permissionCacheCodec.decodeIds(cacheValue);
+        } catch (Exception e) {
+            // 缓存值损坏时按未命中处理, 重新加载后覆盖
+            log.warn("角色权限缓存解析失败, 重新加载: {}", e.getMessage());
+            return null;
         }
+    }
 
-        // 构建树关系
-        List<PermissionTreeResponse> roots = new ArrayList<>();
-        permissionTreeResponses.forEach(permissionVo -> {
-            if (permissionVo.getParentId() == 0) {
-                roots.add(permissionVo);
-                return;
-            }
+    @Override
+    public List<Long> listRoleIdByPermissionId(Long permissionId) {
+        Assert.notNull(permissionId, "权限ID不能为空");
 
-            PermissionTreeResponse parent = permissionVoMap.get(permissionVo.getParentId());
-            if (parent == null) return;
+        TreeSet<Long> roleIds = new TreeSet<>();
+        // admin拥有所有权限
+        roleIds.add(OkAuthPermissionConstant.Role.ADMIN_ID);
 
-            if (parent.getChildren() == null) {
-                parent.setChildren(new ArrayList<>());
-            }
-            parent.getChildren().add(permissionVo);
-        });
+        long[] graphRoleIds = permissionGraph.getRoleIdsByPermissionIds(List.of(permissionId));
+        if (graphRoleIds != null) {
+            Arrays.stream(graphRoleIds).forEach(roleIds::add);
+        } else {
+            roleMtmPermissionMapper.selectListByQuery(QueryWrapper.create()
+                            .select(RoleMtmPermissionDo::getRoleId)
+                            .eq(RoleMtmPermissionDo::getPermissionId, permissionId))
+                    .stream()
+                    .map(RoleMtmPermissionDo::getRoleId)
+                    .filter(Objects::nonNull)
+                    .forEach(roleIds::add);
+        }
+        return new ArrayList<>(roleIds);
+    }
+
+    @Override
+    public List<Long> listUserIdByPermissionId(Long permissionId) {
+        List<Long> roleIds = listRoleIdByPermissionId(permissionId);
+
+        // 通过部门继承了角色的用户
+        TreeSet<Long> userIds = new TreeSet<>(deptService.listUserIdByRoleIds(roleIds));
+
+        long[] graphUserIds = permissionGraph.getUserIdsByRoleIds(roleIds);
+        if (graphUserIds != null) {
+            Arrays.stream(graphUserIds).forEach(userIds::add);
+            return new ArrayList<>(userIds);
+        }
+
+        userMtmRoleMapper.selectListByQuery(QueryWrapper.create()
+                        .select(UserMtmRoleDo::getUserId)
+                        .in(UserMtmRoleDo::getRoleId, roleIds))
+                .stream()
+                .map(UserMtmRoleDo::getUserId)
+                .filter(Objects::nonNull)
+                .forEach(userIds::add);
+        return new ArrayList<>(userIds);
+    }
+
+    /**
+     * 从内存权限图中查询角色的权限ID
+     *
+     * @return 有序的权限ID, 内存权限图未加载完成返回null
+     */
+    private long[] getGraphPermissionIds(Long roleId) {
+        if (!permissionGraph.isReady()) return null;
+        // admin应拥有所有权限
+        if (OkAuthPermissionConstant.Role.ADMIN_ID == roleId) return permissionCatalog.allIds();
+        return permissionGraph.getPermissionIds(roleId);
+    }
 
-        return roots;
+    /**
+     * 从数据库批量加载角色对应的权限ID, 并写入缓存
+     * 不论角色数量多少, 固定为一次关联查询, 缓存通过管道一次写入
+     *
+     * @param roleIds    角色ID
+     * @param generation 加载前的本地缓存失效版本号
+     * @return 角色ID -> 有序的权限ID (角色无权限时为空数组)
+     */
+    private Map<Long, long[]> loadByRoleIds(Collection<Long> roleIds, long generation) {
+        Map<Long, Set<Long>> rolePermissionIds = new HashMap<>();
+        roleIds.forEach(roleId -> rolePermissionIds.put(roleId, new TreeSet<>()));
+
+        // 非admin角色, 一次查询所有角色的权限关联
+        List<Long> normalRoleIds = rolePermissionIds.keySet()
+                .stream()
+                .filter(roleId -> OkAuthPermissionConstant.Role.ADMIN_ID != roleId)
+                .toList();
+        if (!normalRoleIds.isEmpty()) {
+            roleMtmPermissionMapper.selectListByQuery(QueryWrapper.create()
+                            .in(RoleMtmPermissionDo::getRoleId, normalRoleIds))
+                    .stream()
+                    .filter(roleMtmPermissionDo -> roleMtmPermissionDo.getPermissionId() != null)
+                    .forEach(roleMtmPermissionDo -> rolePermissionIds.get(roleMtmPermissionDo.getRoleId())
+                            .add(roleMtmPermissionDo.getPermissionId()));
+        }
+
+        // 加入缓存
+        Map<String, String> cacheValues = new HashMap<>();
+        Map<Long, long[]> result = new HashMap<>();
+        rolePermissionIds.forEach((roleId, permissionIds) -> {
+            // admin应拥有所有权限
+            long[] ids = OkAuthPermissionConstant.Role.ADMIN_ID == roleId
+                    ? permissionCatalog.allIds()
+                    : permissionIds.stream().mapToLong(Long::longValue).toArray();
+            cacheValues.put(permissionCacheKeys.roleMtmPermission(roleId), permissionCacheCodec.encodeIds(ids));
+            result.put(roleId, permissionLocalCache.putPermissionIds(roleId, ids, generation));
+        });
+        redisPipelineCache.multiPut(cacheValues, okAuthPermissionProperties.getCacheTimeout());
+        return result;
     }
 }
@@ -16,30 +16,47 @@
 
 package cn.toint.okauth.permission.service.impl;
 
+import cn.toint.okauth.permission.cache.DeptCatalog;
+import cn.toint.okauth.permission.cache.PermissionCacheCodec;
+import cn.toint.okauth.permission.cache.PermissionCacheKeys;
+import cn.toint.okauth.permission.cache.PermissionGraph;
+import cn.toint.okauth.permission.cache.PermissionLocalCache;
+import cn.toint.okauth.permission.cache.RedisPipelineCache;
+import cn.toint.okauth.permission.cache.RequestMemo;
+import cn.toint.okauth.permission.cache.SingleFlight;
 import cn.toint.okauth.permission.constant.OkAuthPermissionConstant;
 import cn.toint.okauth.permission.event.ClearPermissionCacheEvent;
+import cn.toint.okauth.permission.event.DeptChangeEvent;
+import cn.toint.okauth.permission.mapper.DeptMtmRoleMapper;
 import cn.toint.okauth.permission.mapper.RoleMapper;
 import cn.toint.okauth.permission.mapper.RoleMtmPermissionMapper;
 import cn.toint.okauth.permission.mapper.UserMtmRoleMapper;
 import cn.toint.okauth.permission.model.*;
 import cn.toint.okauth.permission.properties.OkAuthPermissionProperties;
+import cn.toint.okauth.permission.service.DeptService;
 import cn.toint.okauth.permission.service.RoleService;
-import cn.toint.oktool.spring.boot.cache.Cache;
+import cn.toint.okauth.permission.util.SortedLongArrays;
 import cn.toint.oktool.util.Assert;
-import cn.toint.oktool.util.JacksonUtil;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.mybatisflex.core.query.QueryWrapper;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.dromara.hutool.core.collection.CollUtil;
+import org.dromara.hutool.extra.spring.SpringUtil;
 import org.springframework.beans.BeanUtils;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -52,7 +69,7 @@ public class RoleServiceImpl implements RoleService {
     private UserMtmRoleMapper userMtmRoleMapper;
 
     @Resource
-    private Cache cache;
+    private RedisPipelineCache redisPipelineCache;
 
     @Resource
     private OkAuthPermissionProperties okAuthPermissionProperties;
@@ -60,45 +77,188 @@ public class RoleServiceImpl implements RoleService {
     @Resource
     private RoleMtmPermissionMapper roleMtmPermissionMapper;
 
+    @Resource
+    private PermissionLocalCache permissionLocalCache;
+
+    @Resource
+    private SingleFlight singleFlight;
+
+    @Resource
+    private PermissionCacheKeys permissionCacheKeys;
+
+    @Resource
+    private PermissionCacheCodec permissionCacheCodec;
+
+    @Resource
+    private RequestMemo requestMemo;
+
+    @Resource
+    private PermissionGraph permissionGraph;
+
+    @Resource
+    private DeptService deptService;
+
+    @Resource
+    private DeptCatalog deptCatalog;
+
+    @Resource
+    private DeptMtmRoleMapper deptMtmRoleMapper;
+
     @Override
     public boolean isAdmin(Long userId) {
-        List<RoleDo> roleDos = listByUserId(userId);
+        return isAdmin(listEffectiveByUserId(userId));
+    }
+
+    @Override
+    public boolean isAdmin(List<RoleDo> roleDos) {
         return roleDos.stream()
-                .anyMatch(roleDo -> OkAuthPermissionConstant.Role.ADMIN.equals(roleDo.getCode()));
+                .anyMatch(roleDo -> Objects.equals(roleDo.getId(), OkAuthPermissionConstant.Role.ADMIN_ID)
+                        || OkAuthPermissionConstant.Role.ADMIN.equals(roleDo.getCode()));
     }
 
     @Override
     public List<RoleDo> listByUserId(Long userId) {
+        List<RoleDo> roleDos = listEffectiveByUserId(userId);
+        // 管理员拥有全部角色, 只在明确查询列表时加载
+        return isAdmin(roleDos) ? listAll() : roleDos;
+    }
+
+    @Override
+    public List<RoleDo> listEffectiveByUserId(Long userId) {
         Assert.notNull(userId, "用户ID不能为空");
+        // 同一请求内的多次查询只解析一次
+        return requestMemo.get("roles", userId, () -> loadByUserId(userId));
+    }
+
+    @Override
+    public Map<Long, List<RoleDo>> listEffectiveByUserIds(Collection<Long> userIds) {
+        Map<Long, List<RoleDo>> result = new HashMap<>();
+
+        // 1. 内存权限图与本地缓存中已有的直接读取, 只读不写
+        Set<Long> distinctUserIds = new LinkedHashSet<>(userIds);
+        distinctUserIds.remove(null);
+        boolean graphReady = permissionGraph.isReady();
+        Map<Long, List<Long>> userDeptIds = graphReady && deptCatalog.hasRoleBindings()
+                ? deptService.listIdByUserIds(distinctUserIds)
+                : Map.of();
+        List<Long> remoteUserIds = new ArrayList<>();
+        for (Long userId : distinctUserIds) {
+            List<RoleDo> roleDos = graphReady ? listGraphRoles(userId, userDeptIds.get(userId)) : null;
+            if (roleDos == null) roleDos = permissionLocalCache.getRoles(userId);
+            if (roleDos != null) {
+                result.put(userId, roleDos);
+            } else {
+                remoteUserIds.add(userId);
+            }
+        }
+        if (remoteUserIds.isEmpty()) return result;
+
+        // 2. 其余用户一次往返批量读取缓存, 未命中的从数据库加载并写入缓存
+        List<String> cacheKeys = remoteUserIds.stream().map(permissionCacheKeys::userMtmRole).toList();
+        List<String> cacheValues = redisPipelineCache.multiGet(cacheKeys);
+        for (int i = 0; i < remoteUserIds.size(); i++) {
+            Long userId = remoteUserIds.get(i);
+            String cacheKey = cacheKeys.get(i);
+            List<RoleDo> roleDos = decodeRoles(cacheValues.get(i));
+            if (roleDos == null) {
+                roleDos = singleFlight.load(cacheKey, () -> getCacheRoles(cacheKey), () -> loadRoles(userId, cacheKey));
+            }
+            result.put(userId, roleDos.stream().filter(Objects::nonNull).toList());
+        }
+        return result;
+    }
+
+    private List<RoleDo> loadByUserId(Long userId) {
+        // 0. 内存权限图已加载时直接读取
+        if (permissionGraph.isReady()) {
+            List<Long> deptIds = deptCatalog.hasRoleBindings() ? deptService.listIdByUserId(userId) : null;
+            List<RoleDo> graphRoleDos = listGraphRoles(userId, deptIds);
+            if (graphRoleDos != null) {
+                return graphRoleDos;
+            }
+        }
 
-        // 1. 尝试从缓存中获取
-        String cacheKey = OkAuthPermissionConstant.userMtmRoleCacheKeyBuilder.build(String.valueOf(userId));
-        String cacheValue = cache.get(cacheKey);
-        if (StringUtils.isNotBlank(cacheValue)) {
-            return JacksonUtil.readValue(cacheValue, new TypeReference<>() {
-            });
+        // 1. 尝试从本地缓存中获取
+        List<RoleDo> localRoleDos = permissionLocalCache.getRoles(userId);
+        if (localRoleDos != null) {
+            return localRoleDos;
         }
+        long generation = permissionLocalCache.generation();
 
-        // 2. 从数据库中获取用户的所有角色
+        // 2. 尝试从缓存中获取
+        String cacheKey = permissionCacheKeys.userMtmRole(userId);
+        List<RoleDo> roleDos = getCacheRoles(cacheKey);
+
+        // 3. 未命中缓存, 从数据库加载, 同一用户的并发加载合并为一次
+        if (roleDos == null) {
+            roleDos = singleFlight.load(cacheKey, () -> getCacheRoles(cacheKey), () -> loadRoles(userId, cacheKey));
+        }
+        return permissionLocalCache.putRoles(userId, roleDos, generation);
+    }
+
+    /**
+     * 从内存权限图中读取用户角色
+     * 权限图只包含直接绑定的角色, 通过部门继承的角色由部门目录按所属部门展开后合并
+     *
+     * @param deptIds 用户所属部门ID, 不存在部门角色或用户不属于任何部门时为null
+     * @return 内存权限图未加载完成返回null
+     */
+    private List<RoleDo> listGraphRoles(Long userId, List<Long> deptIds) {
+        long[] inheritedRoleIds = CollUtil.isEmpty(deptIds)
+                ? SortedLongArrays.EMPTY
+                : deptCatalog.getInheritedRoleIds(deptIds.stream().mapToLong(Long::longValue).toArray());
+        return permissionGraph.listRoles(userId, inheritedRoleIds);
+    }
+
+    /**
+     * 从缓存中读取用户角色
+     *
+     * @return 未命中返回null
+     */
+    private List<RoleDo> getCacheRoles(String cacheKey) {
+        return decodeRoles(redisPipelineCache.get(cacheKey));
+    }
+
+    /**
+     * 解析缓存中的用户角色
+     *
+     * @return 未命中或缓存值损坏返回null
+     */
+    private List<RoleDo> decodeRoles(String cacheValue) {
+        if (StringUtils.isBlank(cacheValue)) {
+            return null;
+        }
+        try {
+            return permissionCacheCodec.decodeRoles(cacheValue);
+        } catch (Exception e) {
+            // 缓存值损坏时按未命中处理, 重新加载后覆盖
+            log.warn("用户角色缓存解析失败, 重新加载: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 从数据库中加载用户的所有角色, 并加入缓存
+     * 直接绑定的角色与通过部门继承的角色合并后缓存, 鉴权时无需再展开部门
+     */
+    private List<RoleDo> loadRoles(Long userId, String cacheKey) {
         QueryWrapper userMtmRoleQueryWrapper = QueryWrapper.create().eq(UserMtmRoleDo::getUserId, userId);
         List<UserMtmRoleDo> userMtmRoleDos = userMtmRoleMapper.selectListByQuery(userMtmRoleQueryWrapper);
-        List<Long> roleIds = userMtmRoleDos.stream()
+        Set<Long> roleIds = new TreeSet<>();
+        userMtmRoleDos.stream()
                 .map(UserMtmRoleDo::getRoleId)
-                .toList();
+                .filter(Objects::nonNull)
+                .forEach(roleIds::add);
+        roleIds.addAll(deptService.listInheritedRoleIdByUserId(userId));
 
+        // 只缓存直接绑定的角色, admin不展开为全部角色, 避免每次鉴权读取和解析全量角色
         List<RoleDo> roleDos = new ArrayList<>();
         if (CollUtil.isNotEmpty(roleIds)) {
-            // 管理员拥有全部角色
-            if (roleIds.contains(OkAuthPermissionConstant.Role.ADMIN_ID)) {
-                roleDos.addAll(roleMapper.selectAll());
-            } else {
-                QueryWrapper roleQueryWrapper = QueryWrapper.create().in(RoleDo::getId, roleIds);
-                roleDos.addAll(roleMapper.selectListByQuery(roleQueryWrapper));
-            }
+            QueryWrapper roleQueryWrapper = QueryWrapper.create().in(RoleDo::getId, roleIds);
+            roleDos.addAll(roleMapper.selectListByQuery(roleQueryWrapper));
         }
 
-        // 3. 加入缓存
-        cache.put(cacheKey, JacksonUtil.writeValueAsString(roleDos), okAuthPermissionProperties.getCacheTimeout());
+        redisPipelineCache.put(cacheKey, permissionCacheCodec.encodeRoles(roleDos), okAuthPermissionProperties.getCacheTimeout());
         return roleDos;
     }
 
@@ -119,6 +279,7 @@ public class RoleServiceImpl implements RoleService {
 
     @SuppressWarnings("unchecked")
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void create(RoleCreateRequest request) {
         String code = request.getCode();
 
@@ -147,6 +308,7 @@ public class RoleServiceImpl implements RoleService {
 
     @Override
     @SuppressWarnings("unchecked")
+    @Transactional(rollbackFor = Exception.class)
     public void update(RoleUpdateRequest request) {
         String code = request.getCode();
         Long id = request.getId();
@@ -179,12 +341,16 @@ public class RoleServiceImpl implements RoleService {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void delete(List<Long> ids) {
         if (CollUtil.isEmpty(ids)) return;
 
         // 查询是否存在admin角色
         Assert.isFalse(ids.contains(OkAuthPermissionConstant.Role.ADMIN_ID), "admin角色不允许删除");
 
+        // 通过部门继承了角色的用户
+        List<Long> inheritedUserIds = deptService.listUserIdByRoleIds(ids);
+
         // 删除角色数据
         roleMapper.deleteBatchByIds(ids);
 
@@ -208,9 +374,22 @@ public class RoleServiceImpl implements RoleService {
                     .toList());
         }
 
+        // 删除部门与角色的绑定关系
+        List<DeptMtmRoleDo> deptMtmRoleDos = deptMtmRoleMapper.selectListByQuery(QueryWrapper.create()
+                .in(DeptMtmRoleDo::getRoleId, ids));
+        if (!deptMtmRoleDos.isEmpty()) {
+            deptMtmRoleMapper.deleteBatchByIds(deptMtmRoleDos.stream()
+                    .map(DeptMtmRoleDo::getId)
+                    .toList());
+            SpringUtil.publishEvent(new DeptChangeEvent(deptMtmRoleDos.stream()
+                    .map(DeptMtmRoleDo::getDeptId)
+                    .toList()));
+        }
+
         // 清除缓存
         ClearPermissionCacheEvent clearPermissionCacheEvent = ClearPermissionCacheEvent.of();
         ids.forEach(clearPermissionCacheEvent::addRoleId);
+        inheritedUserIds.forEach(clearPermissionCacheEvent::adduserId);
         userMtmRoleDos.forEach(item -> {
             clearPermissionCacheEvent.adduserId(item.getUserId());
             clearPermissionCacheEvent.addRoleId(item.getRoleId());
@@ -223,6 +402,7 @@ public class RoleServiceImpl implements RoleService {
     }
 
     @Override
+    @Transactional(rollbackFor = Exception.class)
     public void bind(Long roleId, List<Long> userIds) {
         Assert.notNull(roleId, "角色ID不能为空");
         Assert.notEmpty(userIds, "用户ID不能为空");
@@ -234,6 +414,14 @@ public class RoleServiceImpl implements RoleService {
         // 校验角色存在
         Assert.isTrue(hasById(roleId), "角色[{}]不存在", roleId);
 
+        // 写入前记录原有用户, 事务提交后已查询不到被移除的用户
+        List<Long> previousUserIds = userMtmRoleMapper.selectListByQuery(QueryWrapper.create()
+                        .select(UserMtmRoleDo::getUserId)
+                        .eq(UserMtmRoleDo::getRoleId, roleId))
+                .stream()
+                .map(UserMtmRoleDo::getUserId)
+                .toList();
+
         // 删除用户与角色已经绑定的数据
         userMtmRoleMapper.deleteByQuery(QueryWrapper.create()
                 .eq(UserMtmRoleDo::getRoleId, roleId));
@@ -252,6 +440,7 @@ public class RoleServiceImpl implements RoleService {
         // 清除缓存
         ClearPermissionCacheEvent clearPermissionCacheEvent = ClearPermissionCacheEvent.of();
         clearPermissionCacheEvent.addRoleId(roleId);
+        previousUserIds.forEach(clearPermissionCacheEvent::adduserId);
         userIds.forEach(clearPermissionCacheEvent::adduserId);
         clearPermissionCacheEvent.publishEvent();
     }
@@ -270,6 +459,21 @@ public class RoleServiceImpl implements RoleService {
     @Override
     public List<Long> listUserIdByRoleId(Long roleId) {
         Assert.notNull(roleId, "角色ID不能为空");
+        // 通过部门继承了角色的用户
+        TreeSet<Long> userIds = new TreeSet<>(deptService.listUserIdByRoleIds(List.of(roleId)));
+        userIds.addAll(listBoundUserIdByRoleId(roleId));
+        return new ArrayList<>(userIds);
+    }
+
+    @Override
+    public List<Long> listBoundUserIdByRoleId(Long roleId) {
+        Assert.notNull(roleId, "角色ID不能为空");
+
+        // 内存权限图已加载时走反向索引
+        long[] graphUserIds = permissionGraph.getUserIds(roleId);
+        if (graphUserIds != null) {
+            return Arrays.stream(graphUserIds).boxed().collect(Collectors.toList());
+        }
 
         return userMtmRoleMapper.selectListByQuery(QueryWrapper.create()
                         .eq(UserMtmRoleDo::getRoleId, roleId))
@@ -277,45 +481,4 @@ public class RoleServiceImpl implements RoleService {
                 .map(UserMtmRoleDo::getUserId)
                 .collect(Collectors.toList());
     }
-
-    @EventListener
-    protected void onClearPermissionCache(ClearPermissionCacheEvent event) {
-        ClearPermissionCacheEvent.Detail detail = event.getSource();
-        Set<Long> userIds = detail.getUserIds();
-        Set<Long> permissionIds = detail.getPermissionIds();
-        Set<Long> roleIds = detail.getRoleIds();
-
-        // 只要动了角色或者权限, 一定清除admin的缓存
-        roleIds.add(OkAuthPermissionConstant.Role.ADMIN_ID);
-
-        // 根据权限ID, 找到需要清除的角色
-        if (!permissionIds.isEmpty()) {
-            roleMtmPermissionMapper.selectListByQuery(QueryWrapper.create()
-                            .in(RoleMtmPermissionDo::getPermissionId, permissionIds))
-                    .stream()
-                    .map(RoleMtmPermissionDo::getRoleId)
-                    .forEach(roleIds::add);
-        }
-
-        // 根据角色, 找到关联的用户
-        if (!roleIds.isEmpty()) {
-            userMtmRoleMapper.selectListByQuery(QueryWrapper.create()
-                            .in(UserMtmRoleDo::getRoleId, roleIds))
-                    .stream()
-                    .map(UserMtmRoleDo::getUserId)
-                    .forEach(userIds::add);
-        }
-
-        // 清除角色与权限关系缓存
-        roleIds.stream()
-                .map(String::valueOf)
-                .map(OkAuthPermissionConstant.roleMtmPermissionCacheKeyBuilder::build)
-                .forEach(cache::delete);
-
-        // 清除用户与角色关系缓存
-        userIds.stream()
-                .map(String::valueOf)
-                .map(OkAuthPermissionConstant.userMtmRoleCacheKeyBuilder::build)
-                .forEach(cache::delete);
-    }
 }
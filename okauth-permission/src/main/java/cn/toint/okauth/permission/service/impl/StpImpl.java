@@ -18,10 +18,7 @@ package cn.toint.okauth.permission.service.impl;
 
 import cn.dev33.satoken.model.wrapperInfo.SaDisableWrapperInfo;
 import cn.dev33.satoken.stp.StpInterface;
-import cn.toint.okauth.permission.model.PermissionDo;
-import cn.toint.okauth.permission.model.RoleDo;
-import cn.toint.okauth.permission.service.PermissionService;
-import cn.toint.okauth.permission.service.RoleService;
+import cn.toint.okauth.permission.engine.PermissionEngine;
 import jakarta.annotation.Resource;
 import org.springframework.stereotype.Service;
 
@@ -35,25 +32,18 @@ import java.util.List;
 public class StpImpl implements StpInterface {
 
     @Resource
-    private PermissionService permissionService;
-
-    @Resource
-    private RoleService roleService;
+    private PermissionEngine permissionEngine;
 
     /**
      * 返回指定账号id所拥有的权限码集合
      *
      * @param loginId   账号id
      * @param loginType 账号类型
-     * @return 权限码集合
+     * @return 权限码集合 (已编译, 校验时走位图)
      */
     @Override
     public List<String> getPermissionList(Object loginId, String loginType) {
-        Long userId = Long.valueOf(loginId.toString());
-        List<PermissionDo> permissionDos = permissionService.listByUserId(userId);
-        return permissionDos.stream()
-                .map(PermissionDo::getCode)
-                .toList();
+        return permissionEngine.getPermissions(toUserId(loginId));
     }
 
     /**
@@ -61,13 +51,19 @@ public class StpImpl implements StpInterface {
      *
      * @param loginId   账号id
      * @param loginType 账号类型
-     * @return 角色标识集合
+     * @return 角色标识集合 (已编译, 校验时走位图)
      */
     @Override
     public List<String> getRoleList(Object loginId, String loginType) {
-        Long userId = Long.valueOf(loginId.toString());
-        List<RoleDo> roleDos = roleService.listByUserId(userId);
-        return roleDos.stream().map(RoleDo::getCode).toList();
+        return permissionEngine.getRoles(toUserId(loginId));
+    }
+
+    /**
+     * 账号id已是Long时直接使用, 避免每次校验都转为字符串再解析
+     */
+    private Long toUserId(Object loginId) {
+        if (loginId instanceof Long userId) return userId;
+        return Long.valueOf(loginId.toString());
     }
 
     @Override
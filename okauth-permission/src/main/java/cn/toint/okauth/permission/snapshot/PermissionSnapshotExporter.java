@@ -0,0 +1,373 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.snapshot;
+
+import cn.toint.okauth.permission.cache.DeptCatalog;
+import cn.toint.okauth.permission.cache.PermissionCacheEvictListener;
+import cn.toint.okauth.permission.cache.PermissionCatalog;
+import cn.toint.okauth.permission.cache.PermissionGraph;
+import cn.toint.okauth.permission.constant.OkAuthPermissionConstant;
+import cn.toint.okauth.permission.mapper.UserMtmDeptMapper;
+import cn.toint.okauth.permission.model.PermissionDo;
+import cn.toint.okauth.permission.model.UserMtmDeptDo;
+import cn.toint.okauth.permission.properties.OkAuthPermissionProperties;
+import cn.toint.okauth.permission.util.LongAdjacency;
+import cn.toint.okauth.permission.util.SortedLongArrays;
+import com.mybatisflex.core.query.QueryWrapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 权限快照导出
+ * <p>
+ * 定期检查内存权限图, 权限目录与部门目录的版本号, 有变化时重新导出快照文件.
+ * 用户的角色为直接绑定的角色与通过部门继承的角色之和, 用户所属部门变更不改变目录版本号,
+ * 存在部门绑定的角色时通过用户缓存失效感知.
+ * 先写入临时文件再原子替换, 已映射旧文件的读取方不受影响, 重新打开即可读取新快照.
+ * 文件格式见 {@link PermissionSnapshotFormat}.
+ */
+@Slf4j
+@Component
+public class PermissionSnapshotExporter implements PermissionCacheEvictListener {
+
+    @Resource
+    private OkAuthPermissionProperties okAuthPermissionProperties;
+
+    @Resource
+    private PermissionGraph permissionGraph;
+
+    @Resource
+    private PermissionCatalog permissionCatalog;
+
+    @Resource
+    private DeptCatalog deptCatalog;
+
+    @Resource
+    private UserMtmDeptMapper userMtmDeptMapper;
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * 最近一次导出时的版本号
+     */
+    private long exportedGraphVersion = -1;
+    private long exportedCatalogVersion = -1;
+    private long exportedDeptVersion = -1;
+    private long exportedMembershipVersion = -1;
+
+    /**
+     * 用户继承的角色可能变化的次数
+     */
+    private final AtomicLong membershipVersion = new AtomicLong();
+
+    @PostConstruct
+    private void init() {
+        OkAuthPermissionProperties.Snapshot snapshot = okAuthPermissionProperties.getSnapshot();
+        if (!snapshot.isEnabled()) return;
+        if (!okAuthPermissionProperties.getGraph().isEnabled()) {
+            log.warn("权限快照导出依赖内存权限图, 请开启 okauth.permission.graph.enabled");
+            return;
+        }
+
+        ScheduledThreadPoolExecutor scheduledThreadPoolExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "okauth-permission-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor = scheduledThreadPoolExecutor;
+        long interval = snapshot.getInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::exportIfChanged, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("权限快照导出已开启, 文件: {}", snapshot.getPath());
+    }
+
+    @PreDestroy
+    private void destroy() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    /**
+     * 版本号有变化时导出
+     */
+    public synchronized void exportIfChanged() {
+        try {
+            if (!permissionGraph.isReady()) return;
+            long graphVersion = permissionGraph.version();
+            long catalogVersion = permissionCatalog.version();
+            long deptVersion = deptCatalog.version();
+            long currentMembershipVersion = membershipVersion.get();
+            if (graphVersion == exportedGraphVersion
+                    && catalogVersion == exportedCatalogVersion
+                    && deptVersion == exportedDeptVersion
+                    && currentMembershipVersion == exportedMembershipVersion) return;
+
+            long start = System.currentTimeMillis();
+            Path path = Path.of(okAuthPermissionProperties.getSnapshot().getPath());
+            int size = export(path, graphVersion, catalogVersion);
+            exportedGraphVersion = graphVersion;
+            exportedCatalogVersion = catalogVersion;
+            exportedDeptVersion = deptVersion;
+            exportedMembershipVersion = currentMembershipVersion;
+            log.info("权限快照导出成功, 权限图版本号: {}, 目录版本号: {}, 大小: {}字节, 耗时: {}ms",
+                    graphVersion, catalogVersion, size, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // 导出失败时保留旧快照, 下次检查时重试
+            log.error("权限快照导出失败: {}", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void onEvict(Collection<Long> userIds, Collection<Long> roleIds) {
+        // 用户缓存失效可能来自所属部门变更, 存在部门绑定的角色时需要重新导出
+        if (userIds != null && !userIds.isEmpty() && deptCatalog.hasRoleBindings()) {
+            membershipVersion.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onEvictAll() {
+        membershipVersion.incrementAndGet();
+    }
+
+    private int export(Path path, long graphVersion, long catalogVersion) throws IOException {
+        // 1. 权限码按字符串升序编号, 权限ID与权限码下标按下标一一对应
+        List<PermissionDo> permissionDos = permissionCatalog.list(permissionCatalog.allIds());
+        long[] permissionIds = permissionDos.stream().mapToLong(PermissionDo::getId).toArray();
+        String[] codes = permissionDos.stream()
+                .map(PermissionDo::getCode)
+                .filter(StringUtils::isNotBlank)
+                .distinct()
+                .sorted()
+                .toArray(String[]::new);
+        Map<String, Integer> codeIndexes = new HashMap<>(codes.length * 4 / 3 + 1);
+        for (int i = 0; i < codes.length; i++) {
+            codeIndexes.put(codes[i], i);
+        }
+        int[] permissionCodeIndexes = new int[permissionIds.length];
+        for (int i = 0; i < permissionIds.length; i++) {
+            String code = permissionDos.get(i).getCode();
+            permissionCodeIndexes[i] = StringUtils.isBlank(code) ? -1 : codeIndexes.get(code);
+        }
+
+        // 2. 相同角色组合的用户共享同一个画像, 通过部门继承的角色按用户ID顺序合并
+        Map<String, Integer> profileIndexes = new HashMap<>();
+        List<int[]> profileCodes = new ArrayList<>();
+        List<Boolean> profileAll = new ArrayList<>();
+        UserTable users = new UserTable();
+        TreeMap<Long, long[]> inheritedRoleIds = listInheritedRoleIds();
+        LongAdjacency.EntryConsumer addUser = (userId, roleIds, from, to) -> {
+            if (from == to) return;
+            String fingerprint = fingerprint(roleIds, from, to);
+            Integer profileIndex = profileIndexes.get(fingerprint);
+            if (profileIndex == null) {
+                profileIndex = profileCodes.size();
+                profileIndexes.put(fingerprint, profileIndex);
+                boolean all = Arrays.binarySearch(roleIds, from, to, OkAuthPermissionConstant.Role.ADMIN_ID) >= 0;
+                profileAll.add(all);
+                profileCodes.add(all ? new int[0] : profileCodes(Arrays.copyOfRange(roleIds, from, to), permissionIds, permissionCodeIndexes));
+            }
+            users.add(userId, profileIndex);
+        };
+        permissionGraph.forEachUserRoles((userId, roleIds, from, to) -> {
+            while (!inheritedRoleIds.isEmpty() && inheritedRoleIds.firstKey() < userId) {
+                Map.Entry<Long, long[]> entry = inheritedRoleIds.pollFirstEntry();
+                addUser.accept(entry.getKey(), entry.getValue(), 0, entry.getValue().length);
+            }
+            long[] userInheritedRoleIds = inheritedRoleIds.remove(userId);
+            if (userInheritedRoleIds == null) {
+                addUser.accept(userId, roleIds, from, to);
+                return;
+            }
+            long[] mergedRoleIds = SortedLongArrays.union(List.of(Arrays.copyOfRange(roleIds, from, to), userInheritedRoleIds));
+            addUser.accept(userId, mergedRoleIds, 0, mergedRoleIds.length);
+        });
+        inheritedRoleIds.forEach((userId, roleIds) -> addUser.accept(userId, roleIds, 0, roleIds.length));
+
+        // 3. 计算各区段位置
+        byte[][] codeBytes = new byte[codes.length][];
+        int codeBytesLength = 0;
+        for (int i = 0; i < codes.length; i++) {
+            codeBytes[i] = codes[i].getBytes(StandardCharsets.UTF_8);
+            codeBytesLength += codeBytes[i].length;
+        }
+        int profileCount = profileCodes.size();
+        int profileCodeCount = profileCodes.stream().mapToInt(array -> array.length).sum();
+
+        int codeOffset = PermissionSnapshotFormat.HEADER_SIZE;
+        int profileOffset = PermissionSnapshotFormat.align((long) codeOffset + 4L * (codes.length + 1) + codeBytesLength);
+        int profileIndexOffset = PermissionSnapshotFormat.align((long) profileOffset + profileCount);
+        int userOffset = PermissionSnapshotFormat.align((long) profileIndexOffset + 4L * (profileCount + 1) + 4L * profileCodeCount);
+        int size = PermissionSnapshotFormat.align((long) userOffset + 12L * users.size);
+
+        // 4. 写入
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(0, PermissionSnapshotFormat.MAGIC)
+                .putInt(4, PermissionSnapshotFormat.FORMAT_VERSION)
+                .putLong(PermissionSnapshotFormat.GRAPH_VERSION, graphVersion)
+                .putLong(PermissionSnapshotFormat.CATALOG_VERSION, catalogVersion)
+                .putLong(PermissionSnapshotFormat.CREATED_AT, System.currentTimeMillis())
+                .putInt(PermissionSnapshotFormat.CODE_COUNT, codes.length)
+                .putInt(PermissionSnapshotFormat.PROFILE_COUNT, profileCount)
+                .putInt(PermissionSnapshotFormat.USER_COUNT, users.size)
+                .putInt(PermissionSnapshotFormat.CODE_OFFSET, codeOffset)
+                .putInt(PermissionSnapshotFormat.PROFILE_OFFSET, profileOffset)
+                .putInt(PermissionSnapshotFormat.USER_OFFSET, userOffset);
+
+        buffer.position(codeOffset);
+        int codePosition = 0;
+        buffer.putInt(codePosition);
+        for (byte[] bytes : codeBytes) {
+            codePosition += bytes.length;
+            buffer.putInt(codePosition);
+        }
+        for (byte[] bytes : codeBytes) {
+            buffer.put(bytes);
+        }
+
+        buffer.position(profileOffset);
+        for (Boolean all : profileAll) {
+            buffer.put(all ? PermissionSnapshotFormat.PROFILE_ALL : 0);
+        }
+        buffer.position(profileIndexOffset);
+        int profilePosition = 0;
+        buffer.putInt(profilePosition);
+        for (int[] array : profileCodes) {
+            profilePosition += array.length;
+            buffer.putInt(profilePosition);
+        }
+        for (int[] array : profileCodes) {
+            for (int codeIndex : array) {
+                buffer.putInt(codeIndex);
+            }
+        }
+
+        buffer.position(userOffset);
+        for (int i = 0; i < users.size; i++) {
+            buffer.putLong(users.userIds[i]);
+        }
+        for (int i = 0; i < users.size; i++) {
+            buffer.putInt(users.profiles[i]);
+        }
+
+        // 5. 先写临时文件, 再原子替换
+        Path absolutePath = path.toAbsolutePath();
+        Path parent = absolutePath.getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path tempPath = absolutePath.resolveSibling(absolutePath.getFileName() + ".tmp");
+        Files.write(tempPath, buffer.array());
+        try {
+            Files.move(tempPath, absolutePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, absolutePath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return size;
+    }
+
+    /**
+     * 查询全部用户通过部门继承的角色
+     *
+     * @return 用户ID -> 升序的角色ID, 没有继承角色的用户不包含在内
+     */
+    private TreeMap<Long, long[]> listInheritedRoleIds() {
+        TreeMap<Long, long[]> result = new TreeMap<>();
+        if (!deptCatalog.hasRoleBindings()) return result;
+
+        Map<Long, List<Long>> userDeptIds = new HashMap<>();
+        userMtmDeptMapper.selectListByQuery(QueryWrapper.create()
+                        .select(UserMtmDeptDo::getUserId, UserMtmDeptDo::getDeptId))
+                .forEach(userMtmDeptDo -> userDeptIds.computeIfAbsent(userMtmDeptDo.getUserId(), key -> new ArrayList<>())
+                        .add(userMtmDeptDo.getDeptId()));
+        userDeptIds.forEach((userId, deptIds) -> {
+            long[] roleIds = deptCatalog.getInheritedRoleIds(deptIds.stream().mapToLong(Long::longValue).toArray());
+            if (roleIds.length > 0) result.put(userId, roleIds);
+        });
+        return result;
+    }
+
+    /**
+     * 角色组合的指纹, 相同组合的用户共享画像
+     */
+    private static String fingerprint(long[] roleIds, int from, int to) {
+        StringBuilder builder = new StringBuilder((to - from) * 20);
+        for (int i = from; i < to; i++) {
+            builder.append(roleIds[i]).append(',');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 计算角色组合拥有的权限码下标
+     */
+    private int[] profileCodes(long[] roleIds, long[] permissionIds, int[] permissionCodeIndexes) {
+        List<long[]> rolePermissionIds = new ArrayList<>(roleIds.length);
+        for (long roleId : roleIds) {
+            long[] ids = permissionGraph.getPermissionIds(roleId);
+            if (ids != null) rolePermissionIds.add(ids);
+        }
+
+        TreeSet<Integer> codeIndexes = new TreeSet<>();
+        for (long permissionId : SortedLongArrays.union(rolePermissionIds)) {
+            int index = Arrays.binarySearch(permissionIds, permissionId);
+            if (index >= 0 && permissionCodeIndexes[index] >= 0) {
+                codeIndexes.add(permissionCodeIndexes[index]);
+            }
+        }
+        return codeIndexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 按用户ID升序追加的 用户 -> 画像
+     */
+    private static final class UserTable {
+        private long[] userIds = new long[1024];
+        private int[] profiles = new int[1024];
+        private int size;
+
+        private void add(long userId, int profile) {
+            if (size == userIds.length) {
+                userIds = Arrays.copyOf(userIds, size * 2);
+                profiles = Arrays.copyOf(profiles, size * 2);
+            }
+            userIds[size] = userId;
+            profiles[size] = profile;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.snapshot;
+
+import cn.toint.oktool.util.ExceptionUtil;
+
+/**
+ * 权限快照文件格式
+ * <p>
+ * 大端序, 各区段按8字节对齐, 偏移量均为相对文件起始的字节数.
+ * <pre>
+ * 文件头 (64字节)
+ *   int  magic            "OKPS"
+ *   int  formatVersion
+ *   long graphVersion     内存权限图版本号
+ *   long catalogVersion   权限目录版本号
+ *   long createdAt        导出时间 (毫秒)
+ *   int  codeCount
+ *   int  profileCount
+ *   int  userCount
+ *   int  codeOffset
+ *   int  profileOffset
+ *   int  userOffset
+ * 权限码
+ *   int[codeCount + 1]    各权限码在字节区中的起止位置
+ *   byte[]                UTF-8 编码的权限码, 按字符串升序排列
+ * 权限画像
+ *   byte[profileCount]    标记, 1 表示拥有全部权限 (admin), 之后按8字节对齐
+ *   int[profileCount + 1] 各画像在权限码下标区中的起止位置
+ *   int[]                 各画像拥有的权限码下标, 画像内升序
+ * 用户
+ *   long[userCount]       用户ID, 升序
+ *   int[userCount]        与用户ID下标对应的画像下标
+ * </pre>
+ */
+final class PermissionSnapshotFormat {
+    static final int MAGIC = 0x4F4B5053;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 64;
+
+    static final int GRAPH_VERSION = 8;
+    static final int CATALOG_VERSION = 16;
+    static final int CREATED_AT = 24;
+    static final int CODE_COUNT = 32;
+    static final int PROFILE_COUNT = 36;
+    static final int USER_COUNT = 40;
+    static final int CODE_OFFSET = 44;
+    static final int PROFILE_OFFSET = 48;
+    static final int USER_OFFSET = 52;
+
+    static final byte PROFILE_ALL = 1;
+
+    private PermissionSnapshotFormat() {
+    }
+
+    static int align(long position) {
+        long aligned = (position + 7) & ~7L;
+        if (aligned > Integer.MAX_VALUE) {
+            throw ExceptionUtil.wrapRuntimeException("权限快照超过2GB");
+        }
+        return (int) aligned;
+    }
+}
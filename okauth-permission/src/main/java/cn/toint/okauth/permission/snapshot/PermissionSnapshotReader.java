@@ -0,0 +1,221 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.snapshot;
+
+import cn.dev33.satoken.util.SaFoxUtil;
+import cn.toint.oktool.util.ExceptionUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 权限快照读取
+ * <p>
+ * 以只读方式内存映射快照文件, 用户与画像数据直接在映射内存中二分查找, 不复制到堆中.
+ * 只有权限码在打开时解码为字典, 数量与权限数量相当.
+ * 实例不可变, 可被多个线程共享; 导出方替换文件后, 重新打开即可读取新快照.
+ * 权限码匹配规则与 Sa-Token 一致, 支持通配符.
+ */
+public final class PermissionSnapshotReader {
+    private final ByteBuffer buffer;
+    private final long graphVersion;
+    private final long catalogVersion;
+    private final long createdAt;
+    private final int profileCount;
+    private final int userCount;
+    private final int profileOffset;
+    private final int profileIndexOffset;
+    private final int profileCodeOffset;
+    private final int userOffset;
+    private final int userProfileOffset;
+
+    /**
+     * 权限码 -> 下标
+     */
+    private final Map<String, Integer> codeIndexes;
+
+    /**
+     * 含通配符的权限码及其下标, 精确匹配失败后逐个模糊匹配
+     */
+    private final String[] wildcardCodes;
+    private final int[] wildcardCodeIndexes;
+
+    private PermissionSnapshotReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != PermissionSnapshotFormat.MAGIC) {
+            throw ExceptionUtil.wrapRuntimeException("权限快照格式错误");
+        }
+        int formatVersion = buffer.getInt(4);
+        if (formatVersion != PermissionSnapshotFormat.FORMAT_VERSION) {
+            throw ExceptionUtil.wrapRuntimeException("不支持的权限快照版本: {}", formatVersion);
+        }
+
+        graphVersion = buffer.getLong(PermissionSnapshotFormat.GRAPH_VERSION);
+        catalogVersion = buffer.getLong(PermissionSnapshotFormat.CATALOG_VERSION);
+        createdAt = buffer.getLong(PermissionSnapshotFormat.CREATED_AT);
+        int codeCount = buffer.getInt(PermissionSnapshotFormat.CODE_COUNT);
+        profileCount = buffer.getInt(PermissionSnapshotFormat.PROFILE_COUNT);
+        userCount = buffer.getInt(PermissionSnapshotFormat.USER_COUNT);
+        int codeOffset = buffer.getInt(PermissionSnapshotFormat.CODE_OFFSET);
+        profileOffset = buffer.getInt(PermissionSnapshotFormat.PROFILE_OFFSET);
+        userOffset = buffer.getInt(PermissionSnapshotFormat.USER_OFFSET);
+        profileIndexOffset = PermissionSnapshotFormat.align((long) profileOffset + profileCount);
+        profileCodeOffset = profileIndexOffset + 4 * (profileCount + 1);
+        userProfileOffset = userOffset + 8 * userCount;
+
+        // 解码权限码
+        codeIndexes = new HashMap<>(codeCount * 4 / 3 + 1);
+        List<String> wildcards = new ArrayList<>();
+        List<Integer> wildcardIndexes = new ArrayList<>();
+        int codeBytesOffset = codeOffset + 4 * (codeCount + 1);
+        for (int i = 0; i < codeCount; i++) {
+            int start = buffer.getInt(codeOffset + 4 * i);
+            int end = buffer.getInt(codeOffset + 4 * (i + 1));
+            byte[] bytes = new byte[end - start];
+            buffer.get(codeBytesOffset + start, bytes);
+            String code = new String(bytes, StandardCharsets.UTF_8);
+            codeIndexes.put(code, i);
+            if (code.indexOf('*') >= 0) {
+                wildcards.add(code);
+                wildcardIndexes.add(i);
+            }
+        }
+        wildcardCodes = wildcards.toArray(String[]::new);
+        wildcardCodeIndexes = wildcardIndexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 打开快照文件
+     */
+    public static PermissionSnapshotReader open(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // 映射在通道关闭后仍然有效
+            return new PermissionSnapshotReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw ExceptionUtil.wrapRuntimeException("权限快照打开失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 用户是否拥有权限
+     *
+     * @param userId     用户ID
+     * @param permission 权限码
+     * @return 用户不在快照中或没有权限返回false
+     */
+    public boolean hasPermission(long userId, String permission) {
+        if (permission == null) return false;
+        int profile = findProfile(userId);
+        if (profile < 0) return false;
+        if (buffer.get(profileOffset + profile) == PermissionSnapshotFormat.PROFILE_ALL) return true;
+
+        int start = buffer.getInt(profileIndexOffset + 4 * profile);
+        int end = buffer.getInt(profileIndexOffset + 4 * (profile + 1));
+        Integer codeIndex = codeIndexes.get(permission);
+        if (codeIndex != null && containsCode(start, end, codeIndex)) return true;
+
+        for (int i = 0; i < wildcardCodes.length; i++) {
+            if (containsCode(start, end, wildcardCodeIndexes[i]) && SaFoxUtil.vagueMatch(wildcardCodes[i], permission)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 内存权限图版本号
+     */
+    public long getGraphVersion() {
+        return graphVersion;
+    }
+
+    /**
+     * 权限目录版本号
+     */
+    public long getCatalogVersion() {
+        return catalogVersion;
+    }
+
+    /**
+     * 导出时间 (毫秒)
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * 快照中的用户数量
+     */
+    public int getUserCount() {
+        return userCount;
+    }
+
+    /**
+     * 快照中的画像数量
+     */
+    public int getProfileCount() {
+        return profileCount;
+    }
+
+    /**
+     * @return 用户的画像下标, 不存在返回-1
+     */
+    private int findProfile(long userId) {
+        int low = 0;
+        int high = userCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = buffer.getLong(userOffset + 8 * mid);
+            if (value < userId) {
+                low = mid + 1;
+            } else if (value > userId) {
+                high = mid - 1;
+            } else {
+                return buffer.getInt(userProfileOffset + 4 * mid);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 在画像的权限码下标 [start, end) 中二分查找
+     */
+    private boolean containsCode(int start, int end, int codeIndex) {
+        int low = start;
+        int high = end - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = buffer.getInt(profileCodeOffset + 4 * mid);
+            if (value < codeIndex) {
+                low = mid + 1;
+            } else if (value > codeIndex) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.util;
+
+import cn.toint.oktool.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+/**
+ * 压缩邻接表 (CSR)
+ * <p>
+ * 键升序保存在一个数组中, 各键的值首尾相连保存在另一个数组中, 通过偏移量定位.
+ * 百万级的关系只占用三个基本类型数组, 没有装箱对象, 内存占用可预估.
+ * 创建后不可修改, 变更通过 {@link #merge(Map)} 生成新的实例.
+ */
+public final class LongAdjacency {
+
+    public static final LongAdjacency EMPTY = new LongAdjacency(new long[0], new int[1], new long[0]);
+
+    /**
+     * 升序且无重复的键
+     */
+    private final long[] keys;
+
+    /**
+     * 第 i 个键的值位于 values[offsets[i], offsets[i + 1])
+     */
+    private final int[] offsets;
+
+    /**
+     * 各键的值, 每个键内升序且无重复
+     */
+    private final long[] values;
+
+    private LongAdjacency(long[] keys, int[] offsets, long[] values) {
+        this.keys = keys;
+        this.offsets = offsets;
+        this.values = values;
+    }
+
+    /**
+     * 查询键对应的值
+     * <p>
+     * 返回副本, 只需遍历或判断是否包含时使用 {@link #forEach(long, LongConsumer)} 或 {@link #contains(long, long)}
+     *
+     * @return 升序且无重复的值, 键不存在返回空数组
+     */
+    public long[] get(long key) {
+        int index = Arrays.binarySearch(keys, key);
+        if (index < 0) return SortedLongArrays.EMPTY;
+        return Arrays.copyOfRange(values, offsets[index], offsets[index + 1]);
+    }
+
+    /**
+     * 按升序遍历键对应的值, 不复制
+     */
+    public void forEach(long key, LongConsumer consumer) {
+        int index = Arrays.binarySearch(keys, key);
+        if (index < 0) return;
+        for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+            consumer.accept(values[i]);
+        }
+    }
+
+    /**
+     * 键对应的值中是否包含指定值
+     */
+    public boolean contains(long key, long value) {
+        int index = Arrays.binarySearch(keys, key);
+        return index >= 0 && Arrays.binarySearch(values, offsets[index], offsets[index + 1], value) >= 0;
+    }
+
+    /**
+     * 查询多个键对应的值的并集
+     *
+     * @param keys 键, 可重复, 不存在的键忽略
+     * @return 升序且无重复的值
+     */
+    public long[] union(long[] keys) {
+        List<long[]> arrays = new ArrayList<>(keys.length);
+        for (long key : keys) {
+            int index = Arrays.binarySearch(this.keys, key);
+            if (index < 0 || offsets[index] == offsets[index + 1]) continue;
+            arrays.add(Arrays.copyOfRange(values, offsets[index], offsets[index + 1]));
+        }
+        return SortedLongArrays.union(arrays);
+    }
+
+    /**
+     * 键的数量
+     */
+    public int keyCount() {
+        return keys.length;
+    }
+
+    /**
+     * 关系的数量
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * 按键升序遍历, 各键的值以共享数组的区间传递, 不复制
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            consumer.accept(keys[i], values, offsets[i], offsets[i + 1]);
+        }
+    }
+
+    /**
+     * 反转为 值 -> 键 的邻接表
+     */
+    public LongAdjacency invert() {
+        long[] invertedKeys = values.clone();
+        Arrays.sort(invertedKeys);
+        int keyCount = 0;
+        for (int i = 0; i < invertedKeys.length; i++) {
+            if (i == 0 || invertedKeys[i] != invertedKeys[i - 1]) {
+                invertedKeys[keyCount++] = invertedKeys[i];
+            }
+        }
+        invertedKeys = Arrays.copyOf(invertedKeys, keyCount);
+
+        // 计数后前缀和得到偏移量, 按原键升序回填, 每个新键内的值自然有序
+        int[] invertedOffsets = new int[keyCount + 1];
+        for (long value : values) {
+            invertedOffsets[Arrays.binarySearch(invertedKeys, value) + 1]++;
+        }
+        for (int i = 0; i < keyCount; i++) {
+            invertedOffsets[i + 1] += invertedOffsets[i];
+        }
+        int[] positions = Arrays.copyOf(invertedOffsets, keyCount);
+        long[] invertedValues = new long[values.length];
+        for (int i = 0; i < keys.length; i++) {
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                invertedValues[positions[Arrays.binarySearch(invertedKeys, values[j])]++] = keys[i];
+            }
+        }
+        return new LongAdjacency(invertedKeys, invertedOffsets, invertedValues);
+    }
+
+    /**
+     * 合并变更
+     *
+     * @param overrides 键 -> 新的值 (升序且无重复), 空数组表示删除该键
+     * @return 新的邻接表
+     */
+    public LongAdjacency merge(Map<Long, long[]> overrides) {
+        if (overrides.isEmpty()) return this;
+
+        long[] overrideKeys = overrides.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        Builder builder = new Builder(values.length + overrides.values().stream().mapToInt(v -> v.length).sum());
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < overrideKeys.length) {
+            if (j == overrideKeys.length || (i < keys.length && keys[i] < overrideKeys[j])) {
+                for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                    builder.add(keys[i], values[k]);
+                }
+                i++;
+            } else {
+                if (i < keys.length && keys[i] == overrideKeys[j]) i++;
+                long key = overrideKeys[j++];
+                for (long value : overrides.get(key)) {
+                    builder.add(key, value);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        /**
+         * @param key    键
+         * @param values 共享数组, 不可修改, 不可在回调外持有
+         * @param from   键的值在数组中的起始下标 (含), 区间内升序且无重复
+         * @param to     键的值在数组中的结束下标 (不含)
+         */
+        void accept(long key, long[] values, int from, int to);
+    }
+
+    public static Builder builder() {
+        return new Builder(1024);
+    }
+
+    /**
+     * 按 (键, 值) 升序逐条添加, 连续重复的关系只保留一条
+     */
+    public static final class Builder {
+        private long[] keys;
+        private int[] offsets;
+        private long[] values;
+        private int keyCount;
+        private int size;
+
+        private Builder(int capacity) {
+            keys = new long[16];
+            offsets = new int[17];
+            values = new long[Math.max(16, capacity)];
+        }
+
+        public Builder add(long key, long value) {
+            if (keyCount > 0 && keys[keyCount - 1] == key) {
+                long last = values[size - 1];
+                if (last == value) return this;
+                Assert.isTrue(last < value, "邻接表的值必须升序添加");
+            } else {
+                Assert.isTrue(keyCount == 0 || keys[keyCount - 1] < key, "邻接表的键必须升序添加");
+                if (keyCount == keys.length) {
+                    keys = Arrays.copyOf(keys, keyCount * 2);
+                    offsets = Arrays.copyOf(offsets, keyCount * 2 + 1);
+                }
+                keys[keyCount] = key;
+                offsets[keyCount] = size;
+                keyCount++;
+            }
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+            return this;
+        }
+
+        public LongAdjacency build() {
+            if (keyCount == 0) return EMPTY;
+            int[] resultOffsets = Arrays.copyOf(offsets, keyCount + 1);
+            resultOffsets[keyCount] = size;
+            return new LongAdjacency(Arrays.copyOf(keys, keyCount), resultOffsets, Arrays.copyOf(values, size));
+        }
+    }
+}
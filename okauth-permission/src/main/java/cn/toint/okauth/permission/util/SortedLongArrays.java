@@ -0,0 +1,102 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 有序 long 数组运算
+ * 用于按ID合并多个角色的权限, 避免装箱和基于 equals/hashCode 的去重
+ */
+public class SortedLongArrays {
+
+    public static final long[] EMPTY = new long[0];
+
+    /**
+     * 多路归并时逐个比较头部元素的最大路数, 超过后改为拼接排序
+     */
+    private static final int LINEAR_MERGE_WAYS = 8;
+
+    private SortedLongArrays() {
+    }
+
+    /**
+     * 求并集
+     *
+     * @param arrays 升序且无重复的数组, 不会被修改
+     * @return 升序且无重复的并集, 只有一个数组时直接返回该数组
+     */
+    public static long[] union(List<long[]> arrays) {
+        if (arrays.isEmpty()) return EMPTY;
+        if (arrays.size() == 1) return arrays.get(0);
+
+        int total = 0;
+        for (long[] array : arrays) {
+            total += array.length;
+        }
+        if (arrays.size() > LINEAR_MERGE_WAYS) {
+            return unionBySort(arrays, total);
+        }
+
+        // 多路归并, 每次取各路头部的最小值
+        int ways = arrays.size();
+        int[] positions = new int[ways];
+        long[] result = new long[total];
+        int size = 0;
+        while (true) {
+            int minWay = -1;
+            long min = 0;
+            for (int way = 0; way < ways; way++) {
+                long[] array = arrays.get(way);
+                if (positions[way] < array.length && (minWay < 0 || array[positions[way]] < min)) {
+                    minWay = way;
+                    min = array[positions[way]];
+                }
+            }
+            if (minWay < 0) break;
+
+            // 跳过各路中与最小值相同的元素
+            for (int way = 0; way < ways; way++) {
+                long[] array = arrays.get(way);
+                if (positions[way] < array.length && array[positions[way]] == min) {
+                    positions[way]++;
+                }
+            }
+            result[size++] = min;
+        }
+        return size == total ? result : Arrays.copyOf(result, size);
+    }
+
+    private static long[] unionBySort(List<long[]> arrays, int total) {
+        long[] result = new long[total];
+        int offset = 0;
+        for (long[] array : arrays) {
+            System.arraycopy(array, 0, result, offset, array.length);
+            offset += array.length;
+        }
+        Arrays.sort(result);
+
+        int size = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (i == 0 || result[i] != result[i - 1]) {
+                result[size++] = result[i];
+            }
+        }
+        return size == total ? result : Arrays.copyOf(result, size);
+    }
+}
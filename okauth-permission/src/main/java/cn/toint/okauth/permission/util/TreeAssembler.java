@@ -0,0 +1,103 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 树构建
+ * <p>
+ * 线性时间构建树: 一次遍历按父ID分组, 再从根节点出发逐层挂载子节点.
+ * 只有从根节点可达的节点才会出现在结果中, 父节点缺失的节点以及数据中的环会被忽略, 不会导致死循环.
+ * 环的校验应在写入时完成, 读取时不再逐个节点检查.
+ */
+public class TreeAssembler {
+
+    /**
+     * 根节点的父ID
+     */
+    public static final long ROOT_PARENT_ID = 0L;
+
+    private TreeAssembler() {
+    }
+
+    /**
+     * 构建树
+     *
+     * @param nodes          已排序的节点, 同级节点保持该顺序
+     * @param idGetter       获取节点ID
+     * @param parentIdGetter 获取父ID, 为null或0表示根节点
+     * @param childrenSetter 设置子节点, 只对有子节点的节点调用
+     * @return 根节点
+     */
+    public static <T> List<T> build(List<T> nodes,
+                                    Function<T, Long> idGetter,
+                                    Function<T, Long> parentIdGetter,
+                                    BiConsumer<T, List<T>> childrenSetter) {
+        List<T> roots = new ArrayList<>();
+        if (nodes.isEmpty()) return roots;
+
+        // 父ID -> 子节点
+        Map<Long, List<T>> childrenMap = new HashMap<>(Math.max(16, nodes.size() * 4 / 3 + 1));
+        for (T node : nodes) {
+            Long parentId = parentIdGetter.apply(node);
+            if (parentId == null || parentId == ROOT_PARENT_ID) {
+                roots.add(node);
+            } else {
+                childrenMap.computeIfAbsent(parentId, key -> new ArrayList<>()).add(node);
+            }
+        }
+
+        // 从根节点出发挂载子节点, 每个节点只访问一次
+        ArrayDeque<T> queue = new ArrayDeque<>(roots);
+        while (!queue.isEmpty()) {
+            T node = queue.poll();
+            List<T> children = childrenMap.remove(idGetter.apply(node));
+            if (children == null) continue;
+            childrenSetter.accept(node, children);
+            queue.addAll(children);
+        }
+        return roots;
+    }
+
+    /**
+     * 检查修改父节点后是否产生环
+     * 从新的父节点沿父ID向上查找, 遇到自身说明新的父节点是自身的子孙节点
+     *
+     * @param id             节点ID
+     * @param parentId       新的父ID
+     * @param parentIdGetter 根据节点ID查询父ID, 节点不存在返回null
+     * @return 是否产生环
+     */
+    public static boolean createsCycle(Long id, Long parentId, Function<Long, Long> parentIdGetter) {
+        int depth = 0;
+        Long currentId = parentId;
+        while (currentId != null && currentId != ROOT_PARENT_ID) {
+            if (currentId.equals(id)) return true;
+            // 已有数据中存在环时避免死循环
+            if (++depth > 10000) return true;
+            currentId = parentIdGetter.apply(currentId);
+        }
+        return false;
+    }
+}
@@ -95,3 +95,62 @@ create index id_role_id
 create index id_user_id
     on user_mtm_role (user_id);
 
+create table if not exists dept
+(
+    id          bigint                              not null
+    primary key,
+    create_time timestamp default CURRENT_TIMESTAMP not null,
+    update_time timestamp default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP,
+    parent_id   bigint                              not null,
+    name        varchar(100)                        not null,
+    remark      text                                null
+    );
+
+create index id_parent_id
+    on dept (parent_id);
+
+create table if not exists dept_closure
+(
+    id            bigint                              not null
+    primary key,
+    create_time   timestamp default CURRENT_TIMESTAMP not null,
+    update_time   timestamp default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP,
+    ancestor_id   bigint                              not null,
+    descendant_id bigint                              not null,
+    depth         int                                 not null,
+    constraint uid_ancestorid_descendantid
+    unique (ancestor_id, descendant_id)
+    );
+
+create index id_descendant_id
+    on dept_closure (descendant_id);
+
+create table if not exists user_mtm_dept
+(
+    id          bigint                              not null
+    primary key,
+    create_time timestamp default CURRENT_TIMESTAMP not null,
+    update_time timestamp default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP,
+    user_id     bigint                              not null,
+    dept_id     bigint                              not null,
+    constraint uid_userid_deptid
+    unique (user_id, dept_id)
+    );
+
+create index id_dept_id
+    on user_mtm_dept (dept_id);
+
+create table if not exists dept_mtm_role
+(
+    id          bigint                              not null
+    primary key,
+    create_time timestamp default CURRENT_TIMESTAMP not null,
+    update_time timestamp default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP,
+    dept_id     bigint                              not null,
+    role_id     bigint                              not null,
+    constraint uid_deptid_roleid
+    unique (dept_id, role_id)
+    );
+
+create index id_role_id
+    on dept_mtm_role (role_id);
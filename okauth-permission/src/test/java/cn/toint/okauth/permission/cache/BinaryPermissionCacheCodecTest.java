@@ -0,0 +1,180 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import cn.toint.okauth.permission.model.PermissionDo;
+import cn.toint.okauth.permission.model.RoleDo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class BinaryPermissionCacheCodecTest {
+
+    /**
+     * 实体新增字段但编解码未同步时, 该字段解码后丢失, 测试失败
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {0, Integer.MAX_VALUE})
+    void roleRoundTripKeepsEveryField(int compressThreshold) throws Exception {
+        BinaryPermissionCacheCodec codec = new BinaryPermissionCacheCodec(compressThreshold);
+        RoleDo roleDo = fill(new RoleDo());
+
+        List<RoleDo> decoded = codec.decodeRoles(codec.encodeRoles(List.of(roleDo, new RoleDo())));
+
+        assertEquals(2, decoded.size());
+        assertFieldsEqual(roleDo, decoded.get(0));
+        assertFieldsEqual(new RoleDo(), decoded.get(1));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, Integer.MAX_VALUE})
+    void permissionRoundTripKeepsEveryField(int compressThreshold) throws Exception {
+        BinaryPermissionCacheCodec codec = new BinaryPermissionCacheCodec(compressThreshold);
+        PermissionDo permissionDo = fill(new PermissionDo());
+
+        List<PermissionDo> decoded = codec.decodePermissions(codec.encodePermissions(List.of(permissionDo, new PermissionDo())));
+
+        assertEquals(2, decoded.size());
+        assertFieldsEqual(permissionDo, decoded.get(0));
+        assertFieldsEqual(new PermissionDo(), decoded.get(1));
+    }
+
+    @Test
+    void idsRoundTrip() {
+        BinaryPermissionCacheCodec codec = new BinaryPermissionCacheCodec(0);
+        long[] ids = {Long.MIN_VALUE, -1, 0, 1, 1_900_000_000_000_000_000L, Long.MAX_VALUE};
+
+        assertArrayEquals(ids, codec.decodeIds(codec.encodeIds(ids)));
+        assertArrayEquals(new long[0], codec.decodeIds(codec.encodeIds(new long[0])));
+    }
+
+    @Test
+    void decodesLegacyJsonValues() {
+        JacksonPermissionCacheCodec jsonCodec = new JacksonPermissionCacheCodec();
+        BinaryPermissionCacheCodec codec = new BinaryPermissionCacheCodec(0);
+        PermissionDo permissionDo = new PermissionDo();
+        permissionDo.setId(1L);
+        permissionDo.setName("菜单");
+        permissionDo.setCode("system:menu");
+
+        PermissionDo decoded = codec.decodePermissions(jsonCodec.encodePermissions(List.of(permissionDo))).get(0);
+        assertEquals(permissionDo.getId(), decoded.getId());
+        assertEquals(permissionDo.getName(), decoded.getName());
+        assertEquals(permissionDo.getCode(), decoded.getCode());
+        assertArrayEquals(new long[]{1, 2, 3}, codec.decodeIds(jsonCodec.encodeIds(new long[]{1, 2, 3})));
+    }
+
+    /**
+     * 截断的压缩数据必须抛出异常, 不能死循环
+     */
+    @Test
+    void truncatedCompressedValueFailsFast() throws Exception {
+        BinaryPermissionCacheCodec codec = new BinaryPermissionCacheCodec(0);
+        List<PermissionDo> permissionDos = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            PermissionDo permissionDo = fill(new PermissionDo());
+            permissionDo.setId((long) i);
+            permissionDo.setName("权限" + i);
+            permissionDos.add(permissionDo);
+        }
+        byte[] bytes = Base64.getDecoder().decode(codec.encodePermissions(permissionDos).substring(1));
+
+        // 截掉校验和之外的压缩数据, 解压时输入耗尽
+        for (int cut : new int[]{16, 64, bytes.length / 2}) {
+            String truncated = "~" + Base64.getEncoder().encodeToString(Arrays.copyOf(bytes, bytes.length - cut));
+            assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> assertThrows(RuntimeException.class, () -> codec.decodePermissions(truncated)));
+        }
+    }
+
+    @Test
+    void binaryIsSmallerThanJson() throws Exception {
+        JacksonPermissionCacheCodec jsonCodec = new JacksonPermissionCacheCodec();
+        BinaryPermissionCacheCodec codec = new BinaryPermissionCacheCodec(1024);
+        List<PermissionDo> permissionDos = PermissionCacheCodecBenchmark.permissions(1000);
+
+        int jsonSize = jsonCodec.encodePermissions(permissionDos).getBytes(StandardCharsets.UTF_8).length;
+        int binarySize = codec.encodePermissions(permissionDos).getBytes(StandardCharsets.UTF_8).length;
+
+        assertTrue(binarySize < jsonSize, "binary " + binarySize + " >= json " + jsonSize);
+    }
+
+    /**
+     * 为每个字段填充不同的非空值
+     */
+    private static <T> T fill(T target) throws IllegalAccessException {
+        int index = 0;
+        for (Field field : fields(target.getClass())) {
+            Class<?> type = field.getType();
+            index++;
+            Object value;
+            if (type == Long.class || type == long.class) {
+                value = 1_000_000_000_000L + index;
+            } else if (type == Integer.class || type == int.class) {
+                value = 10 + index;
+            } else if (type == String.class) {
+                value = field.getName() + "-值";
+            } else if (type == LocalDateTime.class) {
+                value = LocalDateTime.of(2025, 1, 1, 0, 0).plusSeconds(index).withNano(123_000_000);
+            } else if (type == Boolean.class || type == boolean.class) {
+                value = true;
+            } else {
+                fail("缓存编解码未覆盖的字段类型: " + target.getClass().getSimpleName() + "." + field.getName() + " " + type);
+                return target;
+            }
+            field.set(target, value);
+        }
+        return target;
+    }
+
+    private static void assertFieldsEqual(Object expected, Object actual) throws IllegalAccessException {
+        for (Field field : fields(expected.getClass())) {
+            assertEquals(field.get(expected), field.get(actual),
+                    () -> "字段未被缓存编解码保留: " + expected.getClass().getSimpleName() + "." + field.getName());
+        }
+    }
+
+    private static List<Field> fields(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) continue;
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.cache;
+
+import cn.toint.okauth.permission.model.PermissionDo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 权限缓存编解码基准
+ * <p>
+ * 对比 JSON 与二进制编解码的耗时, 编码大小由 {@link BinaryPermissionCacheCodecTest} 校验.
+ * 不随单元测试执行, 在 IDE 中运行 main 方法, 或 test-compile 后以测试类路径运行本类.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionCacheCodecBenchmark {
+
+    @Param({"json", "binary"})
+    public String codecName;
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private PermissionCacheCodec codec;
+    private List<PermissionDo> permissionDos;
+    private String encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        codec = "json".equals(codecName) ? new JacksonPermissionCacheCodec() : new BinaryPermissionCacheCodec(1024);
+        permissionDos = permissions(size);
+        encoded = codec.encodePermissions(permissionDos);
+    }
+
+    @Benchmark
+    public String encode() {
+        return codec.encodePermissions(permissionDos);
+    }
+
+    @Benchmark
+    public List<PermissionDo> decode() {
+        return codec.decodePermissions(encoded);
+    }
+
+    /**
+     * 构造接近真实菜单的权限数据, 路径与组件等字段存在大量重复前缀
+     */
+    static List<PermissionDo> permissions(int size) {
+        List<PermissionDo> permissionDos = new ArrayList<>(size);
+        LocalDateTime time = LocalDateTime.of(2025, 6, 30, 12, 0);
+        for (int i = 0; i < size; i++) {
+            PermissionDo permissionDo = new PermissionDo();
+            permissionDo.setId(1_900_000_000_000_000_000L + i);
+            permissionDo.setCreateTime(time);
+            permissionDo.setUpdateTime(time.plusMinutes(i));
+            permissionDo.setParentId(i < 10 ? 0L : 1_900_000_000_000_000_000L + i / 10);
+            permissionDo.setType(i % 3);
+            permissionDo.setName("菜单" + i);
+            permissionDo.setPath("/system/module" + i / 10 + "/page" + i);
+            permissionDo.setComponent("system/module" + i / 10 + "/index");
+            permissionDo.setComponentName("SystemModule" + i / 10);
+            permissionDo.setIcon("icon-menu");
+            permissionDo.setSort(i % 10);
+            permissionDo.setCode("system:module" + i / 10 + ":page" + i);
+            permissionDos.add(permissionDo);
+        }
+        return permissionDos;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PermissionCacheCodecBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
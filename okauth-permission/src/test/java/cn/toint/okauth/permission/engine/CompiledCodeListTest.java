@@ -0,0 +1,134 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.engine;
+
+import cn.dev33.satoken.util.SaFoxUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompiledCodeListTest {
+
+    private static final List<String> PATTERNS = List.of(
+            "user:add", "user:*", "dept:*:view", "*:export", "role:a*", "u*r:edit", "menu:*d", "log:*:*");
+
+    private static final List<String> CODES = List.of(
+            "user:add", "user:delete", "user", "users:add", "user:add:batch",
+            "dept:view", "dept:a:view", "dept:a:b:view", "dept:a:edit",
+            "user:export", "export", "a:b:export",
+            "role:add", "role:b", "role:a:b",
+            "user:edit", "uaaar:edit", "user:add:edit",
+            "menu:add", "menu:a:d", "menu:b",
+            "log:a", "log:a:b", "log:a:b:c");
+
+    /**
+     * 精确编码走位图, 整段通配符走字典树, 段内通配符回退 Sa-Token 模糊匹配, 结果均与 Sa-Token 一致
+     */
+    @ParameterizedTest
+    @CsvSource({
+            // 精确
+            "user:add,      user:add,           true",
+            "user:add,      user:delete,        false",
+            "user:add,      user:add:batch,     false",
+            "user:add,      user,               false",
+            // 末尾通配符
+            "user:*,        user:add,           true",
+            "user:*,        user:add:batch,     true",
+            "user:*,        user,               false",
+            "*,             dept:add,           true",
+            // 中间通配符
+            "user:*:view,   user:dept:view,     true",
+            "user:*:view,   user:a:b:view,      true",
+            "user:*:view,   user:view,          false",
+            "user:*:view,   user:dept:edit,     false",
+            // 段内通配符
+            "user*,         user,               true",
+            "user*,         user:add,           true",
+            "user:a*,       user:add,           true",
+            "user:a*,       user:delete,        false",
+            "u*r:add,       user:add,           true",
+            "u*r:add,       user:delete,        false",
+            "user:*d,       user:add,           true",
+            "user:*d,       user:a:d,           true",
+            "user:*d,       user:edit,          false",
+    })
+    void matchesLikeVagueMatch(String pattern, String code, boolean expected) {
+        CodeOrdinals ordinals = new CodeOrdinals();
+        CompiledCodeList compiledCodeList = CompiledCodeList.compile(ordinals, List.of(pattern));
+
+        assertEquals(expected, SaFoxUtil.vagueMatch(pattern, code), "Sa-Token 语义");
+        assertEquals(expected, compiledCodeList.matches(code));
+        assertEquals(expected, compiledCodeList.matches(ordinals.find(code), code));
+    }
+
+    @Test
+    void matchesAnyPatternLikeVagueMatch() {
+        CodeOrdinals ordinals = new CodeOrdinals();
+        // 校验编码先于集合分配序号, 覆盖序号超出位图范围的情况
+        CODES.forEach(ordinals::ordinalOf);
+        CompiledCodeList compiledCodeList = CompiledCodeList.compile(ordinals, PATTERNS);
+
+        for (String code : CODES) {
+            boolean expected = PATTERNS.stream().anyMatch(pattern -> SaFoxUtil.vagueMatch(pattern, code));
+            assertEquals(expected, compiledCodeList.matches(code), code);
+            assertEquals(expected, compiledCodeList.matches(ordinals.ordinalOf(code), code), code);
+        }
+    }
+
+    @Test
+    void compileIgnoresBlankAndDuplicateCodes() {
+        CompiledCodeList compiledCodeList = CompiledCodeList.compile(new CodeOrdinals(),
+                Arrays.asList("user:add", null, " ", "user:add", "user:*"));
+
+        assertEquals(List.of("user:add", "user:*"), compiledCodeList);
+        assertFalse(compiledCodeList.isAll());
+    }
+
+    @Test
+    void containsIsExact() {
+        CompiledCodeList compiledCodeList = CompiledCodeList.compile(new CodeOrdinals(), List.of("user:*"));
+
+        assertTrue(compiledCodeList.contains("user:*"));
+        assertFalse(compiledCodeList.contains("user:add"));
+        assertTrue(compiledCodeList.matches("user:add"));
+    }
+
+    @Test
+    void allMatchesWithoutLoading() {
+        AtomicInteger loads = new AtomicInteger();
+        CompiledCodeList compiledCodeList = CompiledCodeList.all(new CodeOrdinals(), () -> {
+            loads.incrementAndGet();
+            return List.of("user:add", "user:delete");
+        });
+
+        assertTrue(compiledCodeList.isAll());
+        assertTrue(compiledCodeList.matches("any:code"));
+        assertTrue(compiledCodeList.contains("any:code"));
+        assertEquals(0, loads.get());
+
+        assertEquals(List.of("user:add", "user:delete"), compiledCodeList);
+        assertEquals(1, loads.get());
+    }
+}
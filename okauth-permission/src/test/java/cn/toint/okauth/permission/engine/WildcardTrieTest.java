@@ -0,0 +1,109 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.engine;
+
+import cn.dev33.satoken.util.SaFoxUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WildcardTrieTest {
+
+    /**
+     * 只接受整段通配符, 段内通配符由 Sa-Token 模糊匹配处理
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "*,             true",
+            "user:*,        true",
+            "user:*:view,   true",
+            "*:view,        true",
+            "user:*:*,      true",
+            "user:add,      false",
+            "user*,         false",
+            "user:a*,       false",
+            "user:*d,       false",
+            "u*r:*,         false",
+    })
+    void accepts(String code, boolean expected) {
+        assertEquals(expected, WildcardTrie.accepts(code));
+    }
+
+    /**
+     * 通配符匹配一个或多个段, 与 Sa-Token 模糊匹配结果一致
+     */
+    @ParameterizedTest
+    @CsvSource({
+            // 末尾通配符
+            "user:*,        user:add,           true",
+            "user:*,        user:add:batch,     true",
+            "user:*,        user,               false",
+            "user:*,        users:add,          false",
+            "*,             user,               true",
+            "*,             user:add:batch,     true",
+            // 中间通配符
+            "user:*:view,   user:dept:view,     true",
+            "user:*:view,   user:a:b:view,      true",
+            "user:*:view,   user::view,         true",
+            "user:*:view,   user:view,          false",
+            "user:*:view,   user:dept:edit,     false",
+            "user:*:view,   user:dept:view:x,   false",
+            "*:view,        user:dept:view,     true",
+            "*:view,        view,               false",
+            // 连续通配符
+            "user:*:*,      user:add,           false",
+            "user:*:*,      user:add:batch,     true",
+            "user:*:*,      user:a:b:c,         true",
+    })
+    void matchesLikeVagueMatch(String pattern, String code, boolean expected) {
+        WildcardTrie trie = new WildcardTrie();
+        trie.add(pattern);
+
+        assertEquals(expected, SaFoxUtil.vagueMatch(pattern, code), "Sa-Token 语义");
+        assertEquals(expected, trie.matches(code));
+    }
+
+    @Test
+    void matchesAnyAddedPattern() {
+        List<String> patterns = List.of("user:*:view", "user:dept:*", "*:export", "role:*");
+        WildcardTrie trie = new WildcardTrie();
+        patterns.forEach(trie::add);
+
+        // 共享前缀的分支匹配失败后需回溯到其他分支
+        for (String code : List.of("user:dept:view", "user:dept:edit", "user:role:view", "user:role:edit",
+                "user:export", "dept:user:export", "role:add", "role", "dept:add", "user:dept")) {
+            boolean expected = patterns.stream().anyMatch(pattern -> SaFoxUtil.vagueMatch(pattern, code));
+            assertEquals(expected, trie.matches(code), code);
+        }
+    }
+
+    @Test
+    void emptyTrieMatchesNothing() {
+        WildcardTrie trie = new WildcardTrie();
+        assertTrue(trie.isEmpty());
+        assertFalse(trie.matches("user:add"));
+
+        trie.add("user:*");
+        assertFalse(trie.isEmpty());
+    }
+}
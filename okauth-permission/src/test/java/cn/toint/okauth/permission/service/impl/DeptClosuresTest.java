@@ -0,0 +1,243 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.service.impl;
+
+import cn.toint.okauth.permission.model.DeptClosureDo;
+import cn.toint.okauth.permission.util.TreeAssembler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 部门闭包关系维护
+ * <p>
+ * 以内存中的闭包表模拟 {@link DeptServiceImpl} 的查询与写入, 每次增量维护后与按父部门重建的结果对比
+ */
+class DeptClosuresTest {
+
+    private static final long ROOT = TreeAssembler.ROOT_PARENT_ID;
+
+    /**
+     * 闭包表
+     */
+    private final List<DeptClosureDo> table = new ArrayList<>();
+
+    /**
+     * 部门ID -> 父部门ID
+     */
+    private final Map<Long, Long> parentIds = new HashMap<>();
+
+    private long nextClosureId;
+
+    /**
+     * 1
+     * ├── 2
+     * │   └── 3
+     * │       └── 4
+     * └── 5
+     */
+    @BeforeEach
+    void setUp() {
+        create(1, ROOT);
+        create(2, 1);
+        create(3, 2);
+        create(4, 3);
+        create(5, 1);
+        assertConsistent();
+    }
+
+    @Test
+    void createAddsSelfAndAncestors() {
+        assertEquals(Set.of("4:4:0", "3:4:1", "2:4:2", "1:4:3"), closuresOf(4));
+        assertEquals(Set.of("5:5:0", "1:5:1"), closuresOf(5));
+    }
+
+    @Test
+    void moveUnderSibling() {
+        move(2, 5);
+
+        assertConsistent();
+        assertEquals(Set.of("4:4:0", "3:4:1", "2:4:2", "5:4:3", "1:4:4"), closuresOf(4));
+        assertEquals(Set.of("2:2:0", "5:2:1", "1:2:2"), closuresOf(2));
+        assertEquals(Set.of("5:5:0", "1:5:1"), closuresOf(5));
+    }
+
+    @Test
+    void moveToRoot() {
+        move(2, ROOT);
+
+        assertConsistent();
+        assertEquals(Set.of("2:2:0"), closuresOf(2));
+        assertEquals(Set.of("4:4:0", "3:4:1", "2:4:2"), closuresOf(4));
+        assertEquals(Set.of("1:1:0", "1:5:1"), table.stream()
+                .filter(deptClosureDo -> deptClosureDo.getAncestorId() == 1)
+                .map(DeptClosuresTest::format)
+                .collect(Collectors.toSet()));
+    }
+
+    @Test
+    void rejectMoveIntoOwnSubtree() {
+        Set<String> before = snapshot();
+
+        assertThrows(RuntimeException.class, () -> move(2, 2));
+        assertThrows(RuntimeException.class, () -> move(2, 3));
+        assertThrows(RuntimeException.class, () -> move(1, 4));
+
+        assertEquals(before, snapshot());
+    }
+
+    @Test
+    void incrementalMaintenanceMatchesRebuild() {
+        Random random = new Random(42);
+        for (long id = 6; id <= 60; id++) {
+            List<Long> ids = new ArrayList<>(parentIds.keySet());
+            create(id, random.nextInt(5) == 0 ? ROOT : ids.get(random.nextInt(ids.size())));
+        }
+        assertConsistent();
+
+        for (int i = 0; i < 200; i++) {
+            List<Long> ids = new ArrayList<>(new TreeSet<>(parentIds.keySet()));
+            long id = ids.get(random.nextInt(ids.size()));
+            Set<Long> subtreeIds = subtreeIds(id);
+            List<Long> targets = ids.stream().filter(target -> !subtreeIds.contains(target)).collect(Collectors.toList());
+            targets.add(ROOT);
+            move(id, targets.get(random.nextInt(targets.size())));
+            assertConsistent();
+        }
+    }
+
+    @Test
+    void rebuildRepairsCorruptedTable() {
+        move(2, 5);
+        Map<String, DeptClosureDo> expected = DeptClosures.build(parentIds);
+
+        // 一致时无需修改
+        DeptClosures.Rebuild noop = DeptClosures.diff(expected, table);
+        assertTrue(noop.removeIds().isEmpty());
+        assertTrue(noop.inserts().isEmpty());
+
+        // 缺失, 层级差错误, 多余与重复的关系
+        table.removeIf(deptClosureDo -> deptClosureDo.getAncestorId() == 5 && deptClosureDo.getDescendantId() == 4);
+        table.stream()
+                .filter(deptClosureDo -> deptClosureDo.getAncestorId() == 1 && deptClosureDo.getDescendantId() == 3)
+                .forEach(deptClosureDo -> deptClosureDo.setDepth(1));
+        insert(List.of(closure(4, 1, 1)));
+        insert(List.of(closure(2, 2, 0)));
+
+        DeptClosures.Rebuild rebuild = DeptClosures.diff(expected, table);
+        Set<Long> removeIds = new HashSet<>(rebuild.removeIds());
+        table.removeIf(deptClosureDo -> removeIds.contains(deptClosureDo.getId()));
+        insert(rebuild.inserts());
+
+        assertConsistent();
+        assertEquals(3, rebuild.removeIds().size());
+        assertEquals(2, rebuild.inserts().size());
+    }
+
+    @Test
+    void buildStopsOnCycles() {
+        Map<Long, Long> cyclic = Map.of(1L, 2L, 2L, 1L, 3L, ROOT);
+        Set<String> closures = DeptClosures.build(cyclic).values().stream()
+                .filter(deptClosureDo -> deptClosureDo.getDescendantId() == 3)
+                .map(DeptClosuresTest::format)
+                .collect(Collectors.toSet());
+        assertEquals(Set.of("3:3:0"), closures);
+    }
+
+    private void create(long id, long parentId) {
+        insert(DeptClosures.create(id, parentClosures(parentId)));
+        parentIds.put(id, parentId);
+    }
+
+    /**
+     * 与 DeptServiceImpl.move 相同的查询与写入
+     */
+    private void move(long id, long parentId) {
+        DeptClosures.Move move = DeptClosures.move(id, parentId, closuresOfDescendant(id), closuresOfAncestor(id),
+                parentClosures(parentId));
+        table.removeIf(deptClosureDo -> move.oldAncestorIds().contains(deptClosureDo.getAncestorId())
+                && move.subtreeIds().contains(deptClosureDo.getDescendantId()));
+        insert(move.inserts());
+        parentIds.put(id, parentId);
+    }
+
+    private List<DeptClosureDo> parentClosures(long parentId) {
+        return parentId == ROOT ? List.of() : closuresOfDescendant(parentId);
+    }
+
+    private List<DeptClosureDo> closuresOfDescendant(long id) {
+        return table.stream().filter(deptClosureDo -> deptClosureDo.getDescendantId() == id).toList();
+    }
+
+    private List<DeptClosureDo> closuresOfAncestor(long id) {
+        return table.stream().filter(deptClosureDo -> deptClosureDo.getAncestorId() == id).toList();
+    }
+
+    private Set<Long> subtreeIds(long id) {
+        return closuresOfAncestor(id).stream().map(DeptClosureDo::getDescendantId).collect(Collectors.toSet());
+    }
+
+    private Set<String> closuresOf(long id) {
+        return closuresOfDescendant(id).stream().map(DeptClosuresTest::format).collect(Collectors.toSet());
+    }
+
+    private void insert(Collection<DeptClosureDo> deptClosureDos) {
+        deptClosureDos.forEach(deptClosureDo -> deptClosureDo.setId(++nextClosureId));
+        table.addAll(deptClosureDos);
+    }
+
+    /**
+     * 闭包表与按父部门重建的结果一致, 且没有重复的关系
+     */
+    private void assertConsistent() {
+        Set<String> expected = DeptClosures.build(parentIds).values().stream()
+                .map(DeptClosuresTest::format)
+                .collect(Collectors.toSet());
+        assertEquals(expected, snapshot());
+        assertEquals(table.size(), snapshot().size(), "存在重复的闭包关系");
+    }
+
+    private Set<String> snapshot() {
+        return table.stream().map(DeptClosuresTest::format).collect(Collectors.toSet());
+    }
+
+    private static DeptClosureDo closure(long ancestorId, long descendantId, int depth) {
+        DeptClosureDo deptClosureDo = new DeptClosureDo();
+        deptClosureDo.setAncestorId(ancestorId);
+        deptClosureDo.setDescendantId(descendantId);
+        deptClosureDo.setDepth(depth);
+        return deptClosureDo;
+    }
+
+    private static String format(DeptClosureDo deptClosureDo) {
+        return deptClosureDo.getAncestorId() + ":" + deptClosureDo.getDescendantId() + ":" + deptClosureDo.getDepth();
+    }
+}
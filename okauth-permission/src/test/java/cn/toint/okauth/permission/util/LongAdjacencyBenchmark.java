@@ -0,0 +1,125 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 邻接表读取基准
+ * <p>
+ * 对比复制读取与共享数组读取的耗时和分配, main 方法启用 GC 分析器, 结果中的 gc.alloc.rate.norm 为每次操作分配的字节数.
+ * 不随单元测试执行, 在 IDE 中运行 main 方法, 或 test-compile 后以测试类路径运行本类.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongAdjacencyBenchmark {
+
+    /**
+     * 每个键的值数量
+     */
+    @Param({"8", "64"})
+    public int degree;
+
+    private LongAdjacency adjacency;
+    private long[] keys;
+    private long[] unionKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        int keyCount = 100_000;
+        LongAdjacency.Builder builder = LongAdjacency.builder();
+        for (long key = 0; key < keyCount; key++) {
+            long[] values = random.longs(degree, 0, 1_000_000).sorted().distinct().toArray();
+            for (long value : values) {
+                builder.add(key, value);
+            }
+        }
+        adjacency = builder.build();
+        keys = random.longs(1024, 0, keyCount).toArray();
+        unionKeys = Arrays.copyOf(keys, 5);
+    }
+
+    @Benchmark
+    public void getCopy(Blackhole blackhole) {
+        for (long key : keys) {
+            long sum = 0;
+            for (long value : adjacency.get(key)) {
+                sum += value;
+            }
+            blackhole.consume(sum);
+        }
+    }
+
+    @Benchmark
+    public void getShared(Blackhole blackhole) {
+        long[] sum = new long[1];
+        for (long key : keys) {
+            sum[0] = 0;
+            adjacency.forEach(key, value -> sum[0] += value);
+            blackhole.consume(sum[0]);
+        }
+    }
+
+    @Benchmark
+    public long forEachShared() {
+        long[] sum = new long[1];
+        adjacency.forEach((key, values, from, to) -> {
+            for (int i = from; i < to; i++) {
+                sum[0] += values[i];
+            }
+        });
+        return sum[0];
+    }
+
+    @Benchmark
+    public long[] union() {
+        return adjacency.union(unionKeys);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LongAdjacencyBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.permission.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongAdjacencyTest {
+
+    private static final LongAdjacency ADJACENCY = LongAdjacency.builder()
+            .add(1, 10).add(1, 11).add(1, 12)
+            .add(3, 11).add(3, 20)
+            .add(5, 30)
+            .build();
+
+    @Test
+    void getReturnsCopy() {
+        long[] values = ADJACENCY.get(1);
+        assertArrayEquals(new long[]{10, 11, 12}, values);
+
+        values[0] = -1;
+        assertArrayEquals(new long[]{10, 11, 12}, ADJACENCY.get(1));
+        assertArrayEquals(new long[0], ADJACENCY.get(2));
+    }
+
+    @Test
+    void forEachKeyVisitsValuesInOrder() {
+        List<Long> values = new ArrayList<>();
+        ADJACENCY.forEach(3, values::add);
+        assertEquals(List.of(11L, 20L), values);
+
+        values.clear();
+        ADJACENCY.forEach(4, values::add);
+        assertTrue(values.isEmpty());
+    }
+
+    @Test
+    void forEachPassesRangesOfSharedArray() {
+        Map<Long, long[]> entries = new TreeMap<>();
+        long[][] shared = new long[1][];
+        ADJACENCY.forEach((key, values, from, to) -> {
+            if (shared[0] == null) shared[0] = values;
+            assertTrue(shared[0] == values, "各键应共享同一个数组");
+            entries.put(key, Arrays.copyOfRange(values, from, to));
+        });
+
+        assertEquals(List.of(1L, 3L, 5L), List.copyOf(entries.keySet()));
+        assertArrayEquals(new long[]{10, 11, 12}, entries.get(1L));
+        assertArrayEquals(new long[]{11, 20}, entries.get(3L));
+        assertArrayEquals(new long[]{30}, entries.get(5L));
+    }
+
+    @Test
+    void contains() {
+        assertTrue(ADJACENCY.contains(1, 11));
+        assertTrue(ADJACENCY.contains(3, 20));
+        assertFalse(ADJACENCY.contains(1, 20));
+        assertFalse(ADJACENCY.contains(3, 10));
+        assertFalse(ADJACENCY.contains(2, 10));
+    }
+
+    @Test
+    void unionMatchesUnionOfCopies() {
+        assertArrayEquals(new long[0], ADJACENCY.union(new long[0]));
+        assertArrayEquals(new long[0], ADJACENCY.union(new long[]{2, 4}));
+        assertArrayEquals(new long[]{11, 20}, ADJACENCY.union(new long[]{3, 4}));
+        assertArrayEquals(new long[]{10, 11, 12, 20, 30}, ADJACENCY.union(new long[]{5, 1, 3, 1}));
+
+        // 路数超过线性归并上限时改为拼接排序, 结果应一致
+        Random random = new Random(42);
+        LongAdjacency.Builder builder = LongAdjacency.builder();
+        for (long key = 0; key < 50; key++) {
+            TreeSet<Long> values = new TreeSet<>();
+            int count = random.nextInt(10);
+            for (int i = 0; i < count; i++) {
+                values.add((long) random.nextInt(100));
+            }
+            for (long value : values) {
+                builder.add(key, value);
+            }
+        }
+        LongAdjacency adjacency = builder.build();
+        for (int ways : new int[]{2, 8, 9, 50}) {
+            long[] keys = random.longs(ways, 0, 60).toArray();
+            List<long[]> copies = Arrays.stream(keys).mapToObj(adjacency::get).toList();
+            assertArrayEquals(SortedLongArrays.union(copies), adjacency.union(keys), "路数: " + ways);
+        }
+    }
+
+    @Test
+    void invertAndMerge() {
+        LongAdjacency inverted = ADJACENCY.invert();
+        assertArrayEquals(new long[]{1, 3}, inverted.get(11));
+        assertArrayEquals(new long[]{5}, inverted.get(30));
+
+        LongAdjacency merged = ADJACENCY.merge(Map.of(1L, new long[0], 4L, new long[]{40}));
+        assertArrayEquals(new long[0], merged.get(1));
+        assertArrayEquals(new long[]{40}, merged.get(4));
+        assertArrayEquals(new long[]{11, 20}, merged.get(3));
+        assertEquals(3, merged.keyCount());
+        assertEquals(4, merged.size());
+    }
+}
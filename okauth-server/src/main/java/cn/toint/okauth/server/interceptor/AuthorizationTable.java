@@ -0,0 +1,257 @@
+/*
+ * Copyright 2025 Toint (599818663@qq.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cn.toint.okauth.server.interceptor;
+
+import cn.dev33.satoken.annotation.SaCheckLogin;
+import cn.dev33.satoken.annotation.SaCheckPermission;
+import cn.dev33.satoken.annotation.SaCheckRole;
+import cn.dev33.satoken.annotation.SaIgnore;
+import cn.dev33.satoken.annotation.SaMode;
+import cn.dev33.satoken.stp.StpUtil;
+import cn.toint.okauth.permission.engine.PermissionEngine;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 接口鉴权表
+ * <p>
+ * 启动时扫描所有接口上的 Sa-Token 注解 (忽略, 登录, 角色, 权限), 预先编译为角色码/权限码序号,
+ * 请求时按接口方法直接查表, 只需一次登录校验和位运算, 不再逐次反射读取注解.
+ * 含有其他 Sa-Token 注解或非默认账号类型的接口无法编译, 仍交由 Sa-Token 处理.
+ */
+@Slf4j
+@Component
+public class AuthorizationTable {
+
+    /**
+     * 可以编译的注解
+     */
+    private static final Set<Class<? extends Annotation>> SUPPORTED_ANNOTATIONS = Set.of(
+            SaIgnore.class, SaCheckLogin.class, SaCheckRole.class, SaCheckPermission.class);
+
+    private static final String SA_TOKEN_ANNOTATION_PACKAGE = SaIgnore.class.getPackageName();
+
+    @Resource
+    private PermissionEngine permissionEngine;
+
+    @Resource
+    private ApplicationContext applicationContext;
+
+    /**
+     * 接口方法 -> 鉴权规则
+     */
+    private final ConcurrentHashMap<Method, Rule> rules = new ConcurrentHashMap<>();
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void compileAll() {
+        int compiled = 0;
+        int fallback = 0;
+        for (RequestMappingHandlerMapping handlerMapping : applicationContext.getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+            for (HandlerMethod handlerMethod : handlerMapping.getHandlerMethods().values()) {
+                Rule rule = get(handlerMethod);
+                if (rule.compiled()) {
+                    compiled++;
+                } else {
+                    fallback++;
+                }
+            }
+        }
+        log.info("接口鉴权表编译成功, 已编译: {}, 交由 Sa-Token 处理: {}", compiled, fallback);
+    }
+
+    /**
+     * 查询接口的鉴权规则, 启动后新增的接口在首次访问时编译
+     */
+    public Rule get(HandlerMethod handlerMethod) {
+        return rules.computeIfAbsent(handlerMethod.getMethod(), method -> compile(handlerMethod.getBeanType(), method));
+    }
+
+    private Rule compile(Class<?> beanType, Method method) {
+        if (hasUnsupportedAnnotation(beanType) || hasUnsupportedAnnotation(method)) {
+            return Rule.FALLBACK;
+        }
+
+        if (AnnotatedElementUtils.hasAnnotation(beanType, SaIgnore.class)
+                || AnnotatedElementUtils.hasAnnotation(method, SaIgnore.class)) {
+            return Rule.IGNORE;
+        }
+
+        // 与 Sa-Token 一致, 类上与方法上的注解都要满足
+        List<Requirement> roles = new ArrayList<>();
+        List<PermissionRequirement> permissions = new ArrayList<>();
+        for (AnnotatedElement element : new AnnotatedElement[]{beanType, method}) {
+            SaCheckLogin checkLogin = AnnotatedElementUtils.findMergedAnnotation(element, SaCheckLogin.class);
+            if (checkLogin != null && !isDefaultType(checkLogin.type())) return Rule.FALLBACK;
+
+            SaCheckRole checkRole = AnnotatedElementUtils.findMergedAnnotation(element, SaCheckRole.class);
+            if (checkRole != null) {
+                if (!isDefaultType(checkRole.type())) return Rule.FALLBACK;
+                roles.add(roleRequirement(checkRole.value(), checkRole.mode()));
+            }
+
+            SaCheckPermission checkPermission = AnnotatedElementUtils.findMergedAnnotation(element, SaCheckPermission.class);
+            if (checkPermission != null) {
+                if (!isDefaultType(checkPermission.type())) return Rule.FALLBACK;
+                // orRole 的每一项为逗号分隔的多个角色, 需同时拥有
+                Requirement[] orRoles = Arrays.stream(checkPermission.orRole())
+                        .map(orRole -> roleRequirement(StringUtils.split(orRole, ','), SaMode.AND))
+                        .toArray(Requirement[]::new);
+                permissions.add(new PermissionRequirement(
+                        permissionRequirement(checkPermission.value(), checkPermission.mode()), orRoles));
+            }
+        }
+        return new Rule(true, false, roles.toArray(Requirement[]::new), permissions.toArray(PermissionRequirement[]::new));
+    }
+
+    private boolean hasUnsupportedAnnotation(AnnotatedElement element) {
+        for (Annotation annotation : element.getAnnotations()) {
+            Class<? extends Annotation> annotationType = annotation.annotationType();
+            if (annotationType.getPackageName().equals(SA_TOKEN_ANNOTATION_PACKAGE)
+                    && !SUPPORTED_ANNOTATIONS.contains(annotationType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isDefaultType(String type) {
+        return StringUtils.isBlank(type) || StpUtil.TYPE.equals(type);
+    }
+
+    private Requirement roleRequirement(String[] codes, SaMode mode) {
+        String[] trimmedCodes = Arrays.stream(codes).map(String::trim).toArray(String[]::new);
+        int[] ordinals = Arrays.stream(trimmedCodes).mapToInt(permissionEngine::roleOrdinal).toArray();
+        return new Requirement(trimmedCodes, ordinals, mode == SaMode.AND);
+    }
+
+    private Requirement permissionRequirement(String[] codes, SaMode mode) {
+        int[] ordinals = Arrays.stream(codes).mapToInt(permissionEngine::permissionOrdinal).toArray();
+        return new Requirement(codes, ordinals, mode == SaMode.AND);
+    }
+
+    /**
+     * 执行鉴权
+     * 校验失败时交由 {@link StpUtil} 抛出与 Sa-Token 注解一致的异常
+     */
+    public void check(Rule rule) {
+        if (rule.ignore()) return;
+
+        Object loginId = StpUtil.getLoginIdDefaultNull();
+        if (loginId == null) {
+            StpUtil.checkLogin();
+            return;
+        }
+        if (rule.roles().length == 0 && rule.permissions().length == 0) return;
+
+        Long userId = loginId instanceof Long id ? id : Long.valueOf(loginId.toString());
+        for (Requirement role : rule.roles()) {
+            if (!hasRoles(userId, role)) throwNotRole(role);
+        }
+        for (PermissionRequirement permission : rule.permissions()) {
+            if (hasPermissions(userId, permission.permissions())) continue;
+            boolean passed = false;
+            for (Requirement orRole : permission.orRoles()) {
+                if (hasRoles(userId, orRole)) {
+                    passed = true;
+                    break;
+                }
+            }
+            if (!passed) throwNotPermission(permission.permissions());
+        }
+    }
+
+    private boolean hasRoles(Long userId, Requirement requirement) {
+        String[] codes = requirement.codes();
+        int[] ordinals = requirement.ordinals();
+        for (int i = 0; i < codes.length; i++) {
+            boolean has = permissionEngine.hasRole(userId, ordinals[i], codes[i]);
+            if (requirement.and() != has) return has;
+        }
+        return requirement.and() || codes.length == 0;
+    }
+
+    private boolean hasPermissions(Long userId, Requirement requirement) {
+        String[] codes = requirement.codes();
+        int[] ordinals = requirement.ordinals();
+        for (int i = 0; i < codes.length; i++) {
+            boolean has = permissionEngine.hasPermission(userId, ordinals[i], codes[i]);
+            if (requirement.and() != has) return has;
+        }
+        return requirement.and() || codes.length == 0;
+    }
+
+    private void throwNotRole(Requirement requirement) {
+        if (requirement.and()) {
+            StpUtil.checkRoleAnd(requirement.codes());
+        } else {
+            StpUtil.checkRoleOr(requirement.codes());
+        }
+    }
+
+    private void throwNotPermission(Requirement requirement) {
+        if (requirement.and()) {
+            StpUtil.checkPermissionAnd(requirement.codes());
+        } else {
+            StpUtil.checkPermissionOr(requirement.codes());
+        }
+    }
+
+    /**
+     * 接口鉴权规则
+     *
+     * @param compiled    是否已编译, 未编译的接口交由 Sa-Token 处理
+     * @param ignore      是否忽略鉴权
+     * @param roles       需要满足的角色要求
+     * @param permissions 需要满足的权限要求
+     */
+    public record Rule(boolean compiled, boolean ignore, Requirement[] roles, PermissionRequirement[] permissions) {
+        static final Rule FALLBACK = new Rule(false, false, new Requirement[0], new PermissionRequirement[0]);
+        static final Rule IGNORE = new Rule(true, true, new Requirement[0], new PermissionRequirement[0]);
+    }
+
+    /**
+     * @param codes    角色码或权限码
+     * @param ordinals 与编码下标对应的序号
+     * @param and      true: 全部拥有, false: 拥有任意一个
+     */
+    public record Requirement(String[] codes, int[] ordinals, boolean and) {
+    }
+
+    /**
+     * @param permissions 权限要求
+     * @param orRoles     权限不满足时, 拥有任意一组角色也可通过
+     */
+    public record PermissionRequirement(Requirement permissions, Requirement[] orRoles) {
+    }
+}
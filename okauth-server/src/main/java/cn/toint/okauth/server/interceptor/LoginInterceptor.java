@@ -20,8 +20,12 @@ import cn.dev33.satoken.fun.SaParamFunction;
 import cn.dev33.satoken.interceptor.SaInterceptor;
 import cn.dev33.satoken.stp.StpUtil;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
 
 /**
  * @author Toint
@@ -31,6 +35,24 @@ import org.springframework.stereotype.Component;
 @Component
 public class LoginInterceptor extends SaInterceptor implements SaParamFunction<Object> {
 
+    @Resource
+    private AuthorizationTable authorizationTable;
+
+    /**
+     * 已编译的接口直接按鉴权表校验, 其余交由 Sa-Token 处理
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (handler instanceof HandlerMethod handlerMethod) {
+            AuthorizationTable.Rule rule = authorizationTable.get(handlerMethod);
+            if (rule.compiled()) {
+                authorizationTable.check(rule);
+                return true;
+            }
+        }
+        return super.preHandle(request, response, handler);
+    }
+
     @Override
     public void run(Object handler) {
         StpUtil.checkLogin();